@@ -0,0 +1,72 @@
+package at.willhaben.springboot2keyspaces.benchmark;
+
+import at.willhaben.springboot2keyspaces.Application;
+import at.willhaben.springboot2keyspaces.KeyspaceProperties;
+import lombok.experimental.UtilityClass;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.CassandraContainer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cassandra the benchmarks run against. A local cluster is used if {@code -Dbenchmark.contact-points} is given,
+ * otherwise a container is started once per benchmark JVM.
+ */
+@UtilityClass
+public class BenchmarkCluster {
+
+    private static CassandraContainer<?> cassandra;
+
+    /**
+     * Starts the application with the keyspaces {@code a} and {@code b} of {@code application.yml} plus the given
+     * number of additional keyspaces {@code bench_k0}, {@code bench_k1}, ... which only map the shared entities.
+     */
+    public static ConfigurableApplicationContext start(KeyspaceProperties.SessionMode sessionMode, int additionalKeyspaces) {
+        return start(sessionMode, additionalKeyspaces, Map.of());
+    }
+
+    public static ConfigurableApplicationContext start(KeyspaceProperties.SessionMode sessionMode, int additionalKeyspaces,
+                                                       Map<String, Object> additionalProperties) {
+        Map<String, Object> properties = new HashMap<>(connectionProperties());
+        properties.put("a.keyspace-name", "bench_a");
+        properties.put("b.keyspace-name", "bench_b");
+        properties.put("cassandra.schema-action", "CREATE_IF_NOT_EXISTS");
+        properties.put("cassandra.session-mode", sessionMode.name());
+        for (int i = 0; i < additionalKeyspaces; i++) {
+            properties.put("cassandra.keyspaces.k%d.keyspace-name".formatted(i), additionalKeyspaceName(i));
+        }
+        properties.putAll(additionalProperties);
+        return new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .properties(properties)
+                .run();
+    }
+
+    public static String additionalKeyspaceName(int index) {
+        return "bench_k%d".formatted(index);
+    }
+
+    private static synchronized Map<String, Object> connectionProperties() {
+        String contactPoints = System.getProperty("benchmark.contact-points");
+        if (contactPoints != null) {
+            return Map.of(
+                    "cassandra.contact-points", contactPoints,
+                    "cassandra.local-datacenter", System.getProperty("benchmark.local-datacenter", "datacenter1"),
+                    "cassandra.username", System.getProperty("benchmark.username", "cassandra"),
+                    "cassandra.password", System.getProperty("benchmark.password", "cassandra"));
+        }
+        if (cassandra == null) {
+            cassandra = new CassandraContainer<>("cassandra:4.1.3");
+            cassandra.withExposedPorts(9042);
+            cassandra.start();
+        }
+        return Map.of(
+                "cassandra.contact-points", "%s:%s".formatted(cassandra.getHost(), cassandra.getMappedPort(9042)),
+                "cassandra.local-datacenter", cassandra.getLocalDatacenter(),
+                "cassandra.username", cassandra.getUsername(),
+                "cassandra.password", cassandra.getPassword());
+    }
+}
@@ -0,0 +1,126 @@
+package at.willhaben.springboot2keyspaces.benchmark;
+
+import at.willhaben.springboot2keyspaces.KeyspaceProperties;
+import at.willhaben.springboot2keyspaces.global.C;
+import at.willhaben.springboot2keyspaces.keyspace1.A;
+import at.willhaben.springboot2keyspaces.keyspace1.ARepository;
+import at.willhaben.springboot2keyspaces.keyspace1.Keyspace1CRepository;
+import at.willhaben.springboot2keyspaces.keyspace2.B;
+import at.willhaben.springboot2keyspaces.keyspace2.BRepository;
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.Row;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.cassandra.core.convert.CassandraConverter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of mapping the record entities between rows and objects in the converters of the keyspaces, without any I/O.
+ * The rows are read from Cassandra once during setup, {@code recordMappers} compares the generic conversion with the
+ * record mappers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConverterBenchmark {
+
+    private final A a = new A(UUID.randomUUID(), "b", "c");
+
+    private final B b = new B(UUID.randomUUID(), "y", "z");
+
+    private final C c = new C(UUID.randomUUID(), "b", "c");
+
+    @Param({"false", "true"})
+    public boolean recordMappers;
+
+    private ConfigurableApplicationContext context;
+
+    private CassandraConverter keyspace1Converter;
+
+    private CassandraConverter keyspace2Converter;
+
+    private Row rowA;
+
+    private Row rowB;
+
+    private Row rowC;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkCluster.start(KeyspaceProperties.SessionMode.PER_KEYSPACE, 0,
+                Map.of("cassandra.record-mappers", recordMappers));
+        keyspace1Converter = context.getBean("aConverter", CassandraConverter.class);
+        keyspace2Converter = context.getBean("bConverter", CassandraConverter.class);
+        context.getBean(ARepository.class).insert(a);
+        context.getBean(BRepository.class).insert(b);
+        context.getBean(Keyspace1CRepository.class).insert(c);
+        CqlSession keyspace1Session = context.getBean("aSession", CqlSession.class);
+        CqlSession keyspace2Session = context.getBean("bSession", CqlSession.class);
+        rowA = keyspace1Session.execute("SELECT * FROM A WHERE a = ?", a.a()).one();
+        rowB = keyspace2Session.execute("SELECT * FROM A WHERE a = ?", b.x()).one();
+        rowC = keyspace1Session.execute("SELECT * FROM C WHERE a = ?", c.a()).one();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.getBean(ARepository.class).deleteAll();
+        context.getBean(BRepository.class).deleteAll();
+        context.getBean(Keyspace1CRepository.class).deleteAll();
+        context.close();
+    }
+
+    @Benchmark
+    public A readA() {
+        return keyspace1Converter.read(A.class, rowA);
+    }
+
+    @Benchmark
+    public B readB() {
+        return keyspace2Converter.read(B.class, rowB);
+    }
+
+    @Benchmark
+    public C readC() {
+        return keyspace1Converter.read(C.class, rowC);
+    }
+
+    @Benchmark
+    public Map<CqlIdentifier, Object> writeA() {
+        return write(keyspace1Converter, a);
+    }
+
+    @Benchmark
+    public Map<CqlIdentifier, Object> writeB() {
+        return write(keyspace2Converter, b);
+    }
+
+    @Benchmark
+    public Map<CqlIdentifier, Object> writeC() {
+        return write(keyspace1Converter, c);
+    }
+
+    private static Map<CqlIdentifier, Object> write(CassandraConverter converter, Object entity) {
+        Map<CqlIdentifier, Object> row = new HashMap<>();
+        converter.write(entity, row);
+        return row;
+    }
+}
@@ -0,0 +1,88 @@
+package at.willhaben.springboot2keyspaces.benchmark;
+
+import at.willhaben.springboot2keyspaces.KeyspaceProperties;
+import at.willhaben.springboot2keyspaces.global.C;
+import at.willhaben.springboot2keyspaces.global.CRepository;
+import at.willhaben.springboot2keyspaces.routing.KeyspaceContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups spread evenly over a growing number of configured keyspaces, through the routing {@link CRepository}, with a
+ * session per keyspace and with a shared session.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class KeyspaceScalingBenchmark {
+
+    private static final int ROWS_PER_KEYSPACE = 1_000;
+
+    @Param({"1", "8", "32"})
+    public int keyspaces;
+
+    @Param({"PER_KEYSPACE", "SHARED"})
+    public KeyspaceProperties.SessionMode sessionMode;
+
+    private ConfigurableApplicationContext context;
+
+    private CRepository routingRepository;
+
+    private String[] keyspaceNames;
+
+    private UUID[] ids;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkCluster.start(sessionMode, keyspaces);
+        routingRepository = context.getBean(CRepository.class);
+        keyspaceNames = new String[keyspaces];
+        ids = new UUID[ROWS_PER_KEYSPACE];
+        for (int i = 0; i < ROWS_PER_KEYSPACE; i++) {
+            ids[i] = UUID.randomUUID();
+        }
+        for (int k = 0; k < keyspaces; k++) {
+            keyspaceNames[k] = BenchmarkCluster.additionalKeyspaceName(k);
+            KeyspaceContext.run(keyspaceNames[k], () -> {
+                for (UUID id : ids) {
+                    routingRepository.insert(new C(id, "b", "c"));
+                }
+            });
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (String keyspaceName : keyspaceNames) {
+            KeyspaceContext.run(keyspaceName, routingRepository::deleteAll);
+        }
+        context.close();
+    }
+
+    @Benchmark
+    public C findByA() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return KeyspaceContext.call(keyspaceNames[random.nextInt(keyspaceNames.length)],
+                () -> routingRepository.findByA(ids[random.nextInt(ids.length)]));
+    }
+}
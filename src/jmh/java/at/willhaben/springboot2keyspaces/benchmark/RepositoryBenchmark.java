@@ -0,0 +1,96 @@
+package at.willhaben.springboot2keyspaces.benchmark;
+
+import at.willhaben.springboot2keyspaces.KeyspaceProperties;
+import at.willhaben.springboot2keyspaces.global.C;
+import at.willhaben.springboot2keyspaces.global.CRepository;
+import at.willhaben.springboot2keyspaces.keyspace1.Keyspace1CRepository;
+import at.willhaben.springboot2keyspaces.keyspace2.Keyspace2CRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Throughput and latency distribution of inserts and {@code findByA} lookups of the shared entity {@link C} in each
+ * keyspace, with a session per keyspace and with a shared session.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    @Param({"PER_KEYSPACE", "SHARED"})
+    public KeyspaceProperties.SessionMode sessionMode;
+
+    private ConfigurableApplicationContext context;
+
+    private CRepository keyspace1;
+
+    private CRepository keyspace2;
+
+    private UUID[] ids;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkCluster.start(sessionMode, 0);
+        keyspace1 = context.getBean(Keyspace1CRepository.class);
+        keyspace2 = context.getBean(Keyspace2CRepository.class);
+        ids = IntStream.range(0, ROWS).mapToObj(i -> UUID.randomUUID()).toArray(UUID[]::new);
+        for (UUID id : ids) {
+            keyspace1.insert(new C(id, "b", "keyspace1"));
+            keyspace2.insert(new C(id, "b", "keyspace2"));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        keyspace1.deleteAll();
+        keyspace2.deleteAll();
+        context.close();
+    }
+
+    @Benchmark
+    public C insertKeyspace1() {
+        return keyspace1.insert(new C(UUID.randomUUID(), "b", "c"));
+    }
+
+    @Benchmark
+    public C insertKeyspace2() {
+        return keyspace2.insert(new C(UUID.randomUUID(), "b", "c"));
+    }
+
+    @Benchmark
+    public C findByAKeyspace1() {
+        return keyspace1.findByA(randomId());
+    }
+
+    @Benchmark
+    public C findByAKeyspace2() {
+        return keyspace2.findByA(randomId());
+    }
+
+    private UUID randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+}
@@ -0,0 +1,42 @@
+package at.willhaben.springboot2keyspaces.benchmark;
+
+import at.willhaben.springboot2keyspaces.KeyspaceProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to start the application (register beans, open sessions, create the schema) and close it again, depending on the
+ * number of configured keyspaces and the session mode. The keyspaces exist from the warmup on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StartupBenchmark {
+
+    @Param({"1", "8", "32"})
+    public int keyspaces;
+
+    @Param({"PER_KEYSPACE", "SHARED"})
+    public KeyspaceProperties.SessionMode sessionMode;
+
+    @Benchmark
+    public int startAndClose() {
+        try (ConfigurableApplicationContext context = BenchmarkCluster.start(sessionMode, keyspaces)) {
+            return context.getBeanDefinitionCount();
+        }
+    }
+}
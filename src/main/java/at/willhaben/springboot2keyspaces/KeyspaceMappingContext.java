@@ -0,0 +1,76 @@
+package at.willhaben.springboot2keyspaces;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import org.springframework.data.cassandra.core.mapping.BasicCassandraPersistentEntity;
+import org.springframework.data.cassandra.core.mapping.CassandraMappingContext;
+import org.springframework.data.cassandra.core.mapping.CassandraPersistentEntity;
+import org.springframework.data.util.TypeInformation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Mapping context of a single keyspace which only builds the metadata of the keyspace-private entities.
+ * Entities of the shared packages are looked up in the parent context, so their persistent entities,
+ * property accessors and instantiators are created once and reused by every keyspace.
+ * The table and user type entities of the parent are still reported, so the schema action creates
+ * the shared tables in each keyspace.
+ */
+public class KeyspaceMappingContext extends CassandraMappingContext {
+
+    private final CassandraMappingContext parent;
+
+    public KeyspaceMappingContext(CassandraMappingContext parent) {
+        this.parent = parent;
+    }
+
+    @Override
+    public BasicCassandraPersistentEntity<?> getPersistentEntity(TypeInformation<?> type) {
+        if (parent.hasPersistentEntityFor(type.getType())) {
+            return parent.getPersistentEntity(type);
+        }
+        return super.getPersistentEntity(type);
+    }
+
+    @Override
+    public boolean hasPersistentEntityFor(Class<?> type) {
+        return parent.hasPersistentEntityFor(type) || super.hasPersistentEntityFor(type);
+    }
+
+    @Override
+    public Collection<BasicCassandraPersistentEntity<?>> getPersistentEntities() {
+        return union(parent.getPersistentEntities(), super.getPersistentEntities());
+    }
+
+    @Override
+    public Collection<TypeInformation<?>> getManagedTypes() {
+        Set<TypeInformation<?>> managedTypes = new LinkedHashSet<>(parent.getManagedTypes());
+        managedTypes.addAll(super.getManagedTypes());
+        return Collections.unmodifiableSet(managedTypes);
+    }
+
+    @Override
+    public Collection<BasicCassandraPersistentEntity<?>> getTableEntities() {
+        return union(parent.getTableEntities(), super.getTableEntities());
+    }
+
+    @Override
+    public Collection<CassandraPersistentEntity<?>> getUserDefinedTypeEntities() {
+        return union(parent.getUserDefinedTypeEntities(), super.getUserDefinedTypeEntities());
+    }
+
+    @Override
+    public boolean usesTable(CqlIdentifier name) {
+        return parent.usesTable(name) || super.usesTable(name);
+    }
+
+    private static <T> Collection<T> union(Collection<T> shared, Collection<T> own) {
+        List<T> entities = new ArrayList<>(shared);
+        entities.addAll(own);
+        return Collections.unmodifiableList(entities);
+    }
+}
@@ -1,15 +1,24 @@
 package at.willhaben.springboot2keyspaces;
 
 
+import com.datastax.oss.driver.api.core.DefaultConsistencyLevel;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
-@Component
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component(KeyspaceProperties.BEAN_NAME)
 @ConfigurationProperties(prefix = "cassandra")
 @Data
 public class KeyspaceProperties {
 
+    public static final String BEAN_NAME = "keyspaceProperties";
+
     private String contactPoints;
 
     private String localDataCenter;
@@ -19,4 +28,244 @@ public class KeyspaceProperties {
     private String password;
 
     private String schemaAction;
+
+    /**
+     * Time the nodes get to agree on the schema once the keyspaces are created and once their schema actions are performed.
+     */
+    private Duration schemaAgreementTimeout = Duration.ofSeconds(10);
+
+    private SessionMode sessionMode = SessionMode.PER_KEYSPACE;
+
+    /**
+     * Opens the session of a keyspace on its first request instead of at startup, only applies to {@link SessionMode#PER_KEYSPACE}.
+     */
+    private boolean lazySessions;
+
+    /**
+     * Time without requests after which a lazily opened session is closed again, sessions stay open if unset.
+     */
+    private Duration sessionIdleTimeout;
+
+    /**
+     * Packages with entities which are mapped in every keyspace, e.g. {@code global}.
+     */
+    private List<String> sharedEntityPackages = new ArrayList<>();
+
+    /**
+     * Keyspaces by bean name prefix, e.g. {@code a} registers {@code aSession}, {@code aCassandraTemplate}, ...
+     */
+    private Map<String, Keyspace> keyspaces = new LinkedHashMap<>();
+
+    /**
+     * Upper bound of keyspaces which are not configured (e.g. per tenant) and hold a template at the same time.
+     */
+    private int maxCachedKeyspaces = 100;
+
+    /**
+     * Rows fetched per page by the templates, streaming repositories and token range scans.
+     */
+    private int pageSize = 5000;
+
+    /**
+     * Reads and writes record entities with mappers resolved once per record instead of the generic conversion.
+     */
+    private boolean recordMappers;
+
+    private PreparedStatements preparedStatements = new PreparedStatements();
+
+    private Async async = new Async();
+
+    /**
+     * Driver settings of all sessions, the {@link Keyspace#getDriver() driver settings} of a keyspace override them.
+     */
+    private Driver driver = new Driver();
+
+    /**
+     * Global driver settings with the page size resolved, used by the shared session and by keyspaces which are not configured.
+     */
+    public Driver resolveDriver() {
+        return withPageSize(driver.overriddenBy(new Driver()));
+    }
+
+    /**
+     * Driver settings of the keyspace with the global settings filled in.
+     */
+    public Driver resolveDriver(Keyspace keyspace) {
+        return withPageSize(driver.overriddenBy(keyspace.getDriver()));
+    }
+
+    private Driver withPageSize(Driver resolved) {
+        if (resolved.getPageSize() == null) {
+            resolved.setPageSize(pageSize);
+        }
+        return resolved;
+    }
+
+    public enum SessionMode {
+        /**
+         * Every keyspace opens its own session which is bound to the keyspace.
+         */
+        PER_KEYSPACE,
+        /**
+         * All keyspaces share a single session, the keyspace is set on each statement instead.
+         * Per request keyspaces require native protocol v5, i.e. Cassandra 4.0 or newer.
+         */
+        SHARED
+    }
+
+    @Data
+    public static class Keyspace {
+
+        private String keyspaceName;
+
+        /**
+         * Packages with the entities and repositories of this keyspace.
+         */
+        private List<String> basePackages = new ArrayList<>();
+
+        /**
+         * Time this keyspace has to answer a query or write sent to several keyspaces before its result is reported as failed.
+         */
+        private Duration queryTimeout = Duration.ofSeconds(5);
+
+        private Driver driver = new Driver();
+
+        private Throttling throttling = new Throttling();
+
+        private NearCache nearCache = new NearCache();
+    }
+
+    @Data
+    public static class PreparedStatements {
+
+        /**
+         * Prepares the CRUD statements and derived queries of the repositories of every keyspace during startup.
+         */
+        private boolean warmUp = true;
+
+        /**
+         * Statements which are prepared in every keyspace as soon as one keyspace prepared them.
+         */
+        private int maxShared = 1000;
+    }
+
+    @Data
+    public static class Async {
+
+        /**
+         * Runs the calls of the keyspace executors on virtual threads instead of the pool, requires Java 21.
+         */
+        private boolean virtualThreads;
+
+        /**
+         * Platform threads running the calls of the keyspace executors if virtual threads are disabled.
+         */
+        private int poolSize = 64;
+    }
+
+    @Data
+    public static class NearCache {
+
+        /**
+         * Entities of point lookups cached for the keyspace, the near cache is disabled if unset.
+         */
+        private Long maximumSize;
+
+        /**
+         * Time after which a cached entity is read again, which bounds how stale writes of other clients are seen.
+         */
+        private Duration expireAfterWrite = Duration.ofMinutes(1);
+    }
+
+    @Data
+    public static class Throttling {
+
+        /**
+         * Requests of the keyspace's template in flight at the same time, throttling is disabled if unset.
+         */
+        private Integer maxInFlight;
+
+        /**
+         * Requests waiting for a slot before further ones are rejected.
+         */
+        private int maxQueueSize = 1000;
+
+        /**
+         * Time a request waits for a slot before it is rejected.
+         */
+        private Duration queueTimeout = Duration.ofSeconds(1);
+    }
+
+    /**
+     * Settings of the DataStax driver, unset values keep the driver defaults. With {@link SessionMode#SHARED} the pool
+     * size and compression of a keyspace are ignored, since they are properties of the session and not of a request.
+     */
+    @Data
+    public static class Driver {
+
+        /**
+         * Connections per node of the local datacenter.
+         */
+        private Integer poolSize;
+
+        private Duration requestTimeout;
+
+        private DefaultConsistencyLevel consistency;
+
+        /**
+         * Rows per page, defaults to {@code cassandra.page-size}.
+         */
+        private Integer pageSize;
+
+        /**
+         * Compresses the native protocol with LZ4.
+         */
+        private Boolean compression;
+
+        /**
+         * Whether statements are idempotent unless marked otherwise, speculative executions are only sent for idempotent statements.
+         */
+        private Boolean defaultIdempotence;
+
+        private SpeculativeExecution speculativeExecution = new SpeculativeExecution();
+
+        /**
+         * Whether any setting is applied per request, i.e. can be set in an execution profile of a shared session.
+         */
+        public boolean hasRequestOptions() {
+            return requestTimeout != null || consistency != null || pageSize != null || defaultIdempotence != null
+                    || speculativeExecution.getMaxExecutions() != null;
+        }
+
+        Driver overriddenBy(Driver overrides) {
+            Driver merged = new Driver();
+            merged.setPoolSize(override(overrides.getPoolSize(), poolSize));
+            merged.setRequestTimeout(override(overrides.getRequestTimeout(), requestTimeout));
+            merged.setConsistency(override(overrides.getConsistency(), consistency));
+            merged.setPageSize(override(overrides.getPageSize(), pageSize));
+            merged.setCompression(override(overrides.getCompression(), compression));
+            merged.setDefaultIdempotence(override(overrides.getDefaultIdempotence(), defaultIdempotence));
+            merged.setSpeculativeExecution(overrides.getSpeculativeExecution().getMaxExecutions() != null
+                    ? overrides.getSpeculativeExecution() : speculativeExecution);
+            return merged;
+        }
+
+        private static <T> T override(T value, T fallback) {
+            return value != null ? value : fallback;
+        }
+    }
+
+    @Data
+    public static class SpeculativeExecution {
+
+        /**
+         * Executions per request including the first one, speculative execution is disabled if unset.
+         */
+        private Integer maxExecutions;
+
+        /**
+         * Time to wait for a response before the next execution is started.
+         */
+        private Duration delay = Duration.ofMillis(100);
+    }
 }
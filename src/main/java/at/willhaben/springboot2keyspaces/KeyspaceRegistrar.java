@@ -0,0 +1,222 @@
+package at.willhaben.springboot2keyspaces;
+
+import at.willhaben.springboot2keyspaces.async.KeyspaceExecutors;
+import at.willhaben.springboot2keyspaces.streaming.SimpleStreamingCassandraRepository;
+import lombok.Setter;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.ResourceLoaderAware;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.context.annotation.ImportBeanDefinitionRegistrar;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.core.type.filter.AssignableTypeFilter;
+import org.springframework.data.cassandra.repository.support.CassandraRepositoryFactoryBean;
+import org.springframework.data.cassandra.repository.support.ReactiveCassandraRepositoryFactoryBean;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.core.RepositoryMetadata;
+import org.springframework.data.repository.core.support.AbstractRepositoryMetadata;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import java.beans.Introspector;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Registers the beans of every keyspace declared in {@link KeyspaceProperties#getKeyspaces()}, replacing a hand written
+ * configuration with {@code @EnableCassandraRepositories} per keyspace. For a keyspace with prefix {@code a} these are
+ * {@code aSessionBuilderConfigurer}, {@code aSession}, {@code aSessionFactory}, {@code aManagedTypes}, {@code aMappingContext},
+ * {@code aConverter}, {@code aCassandraTemplate}, {@code aAsyncCassandraTemplate}, {@code aReactiveSessionFactory},
+ * {@code aReactiveCassandraTemplate} and the blocking and reactive repositories found in its base packages. Keyspaces
+ * with throttling enabled get an {@code aThrottle} in front of their {@code aCassandraTemplate}.
+ * <p>
+ * The bean definitions only hold values which ahead-of-time processing can write as code: settings are resolved from
+ * the {@link KeyspaceProperties} bean when the beans are created, and the entities are scanned by {@code xManagedTypes}
+ * beans, which Spring Data replaces with the scanned classes at build time. The keyspaces themselves are fixed at build
+ * time then.
+ */
+public class KeyspaceRegistrar implements ImportBeanDefinitionRegistrar, EnvironmentAware, ResourceLoaderAware {
+
+    public static final String SESSION_BUILDER_CONFIGURER = "SessionBuilderConfigurer";
+    public static final String SESSION = "Session";
+    public static final String SESSION_FACTORY = "SessionFactory";
+    public static final String MANAGED_TYPES = "ManagedTypes";
+    public static final String MAPPING_CONTEXT = "MappingContext";
+    public static final String ENTITY_INSTANTIATORS = "EntityInstantiators";
+    public static final String CONVERTER = "Converter";
+    public static final String CASSANDRA_TEMPLATE = "CassandraTemplate";
+    public static final String THROTTLE = "Throttle";
+    public static final String ASYNC_CASSANDRA_TEMPLATE = "AsyncCassandraTemplate";
+    public static final String ASYNC_EXECUTOR = "AsyncExecutor";
+    public static final String REACTIVE_SESSION_FACTORY = "ReactiveSessionFactory";
+    public static final String REACTIVE_CASSANDRA_TEMPLATE = "ReactiveCassandraTemplate";
+
+    @Setter
+    private Environment environment;
+
+    @Setter
+    private ResourceLoader resourceLoader;
+
+    public static String beanName(String prefix, String suffix) {
+        return prefix + suffix;
+    }
+
+    @Override
+    public void registerBeanDefinitions(AnnotationMetadata importingClassMetadata, BeanDefinitionRegistry registry) {
+        KeyspaceProperties keyspaceProperties = Binder.get(environment).bindOrCreate("cassandra", KeyspaceProperties.class);
+
+        // Used by the shared session and by sessions opened for keyspaces which are not configured
+        register(registry, beanName(KeyspaceSessions.SHARED_PREFIX, SESSION_BUILDER_CONFIGURER), factoryMethod("sharedSessionBuilderConfigurer")
+                .addConstructorArgReference(KeyspaceProperties.BEAN_NAME));
+        register(registry, beanName(KeyspaceSessions.SHARED_PREFIX, MANAGED_TYPES), factoryMethod("managedTypes")
+                .addConstructorArgValue(StringUtils.toStringArray(keyspaceProperties.getSharedEntityPackages())));
+        register(registry, beanName(KeyspaceSessions.SHARED_PREFIX, MAPPING_CONTEXT), factoryMethod("mappingContext")
+                .addConstructorArgReference(beanName(KeyspaceSessions.SHARED_PREFIX, MANAGED_TYPES)));
+        register(registry, beanName(KeyspaceSessions.SHARED_PREFIX, ENTITY_INSTANTIATORS), factoryMethod("entityInstantiators"));
+        Map<String, String> repositoryKeyspaces = new LinkedHashMap<>();
+        keyspaceProperties.getKeyspaces().forEach((prefix, keyspace) -> {
+            register(registry, beanName(prefix, SESSION_BUILDER_CONFIGURER), factoryMethod("keyspaceSessionBuilderConfigurer")
+                    .addConstructorArgReference(KeyspaceProperties.BEAN_NAME)
+                    .addConstructorArgValue(prefix));
+            registerKeyspace(registry, prefix, keyspace, keyspaceProperties);
+            registerRepositories(registry, prefix, keyspace, repositoryKeyspaces);
+        });
+        register(registry, KeyspaceRepositories.BEAN_NAME, BeanDefinitionBuilder.rootBeanDefinition(KeyspaceRepositories.class)
+                .addConstructorArgValue(repositoryKeyspaces));
+    }
+
+    /**
+     * Execution profiles of the shared session, named by keyspace prefix, for keyspaces with own request settings.
+     */
+    public static Map<String, KeyspaceProperties.Driver> executionProfiles(KeyspaceProperties keyspaceProperties) {
+        Map<String, KeyspaceProperties.Driver> profiles = new LinkedHashMap<>();
+        keyspaceProperties.getKeyspaces().forEach((prefix, keyspace) -> {
+            if (keyspace.getDriver().hasRequestOptions()) {
+                profiles.put(prefix, keyspace.getDriver());
+            }
+        });
+        return profiles;
+    }
+
+    private void registerKeyspace(BeanDefinitionRegistry registry, String prefix, KeyspaceProperties.Keyspace keyspace,
+                                  KeyspaceProperties keyspaceProperties) {
+        register(registry, beanName(prefix, SESSION), BeanDefinitionBuilder.genericBeanDefinition()
+                .setFactoryMethodOnBean("getSession", KeyspaceSessions.BEAN_NAME)
+                .addConstructorArgValue(prefix));
+        register(registry, beanName(prefix, MANAGED_TYPES), factoryMethod("managedTypes")
+                .addConstructorArgValue(StringUtils.toStringArray(keyspace.getBasePackages())));
+        // Entities of the shared packages are resolved from the shared mapping context
+        register(registry, beanName(prefix, MAPPING_CONTEXT), factoryMethod("keyspaceMappingContext")
+                .addConstructorArgReference(beanName(KeyspaceSessions.SHARED_PREFIX, MAPPING_CONTEXT))
+                .addConstructorArgReference(beanName(prefix, MANAGED_TYPES)));
+        register(registry, beanName(prefix, CONVERTER), factoryMethod("converter")
+                .addConstructorArgReference(beanName(prefix, SESSION))
+                .addConstructorArgReference(beanName(prefix, MAPPING_CONTEXT))
+                .addConstructorArgReference(beanName(KeyspaceSessions.SHARED_PREFIX, ENTITY_INSTANTIATORS))
+                .addConstructorArgValue(keyspaceProperties.isRecordMappers()));
+        // The schema actions of all keyspaces are performed concurrently before any session factory is created
+        register(registry, beanName(prefix, SESSION_FACTORY), factoryMethod("sessionFactory")
+                .addConstructorArgReference(beanName(prefix, SESSION))
+                .addConstructorArgReference(beanName(prefix, CONVERTER))
+                .addConstructorArgValue(keyspaceProperties.getSchemaAction())
+                .addDependsOn(KeyspaceSchemas.BEAN_NAME));
+        registerCassandraTemplate(registry, prefix, keyspace, keyspaceProperties);
+        register(registry, beanName(prefix, ASYNC_CASSANDRA_TEMPLATE), factoryMethod("asyncCassandraTemplate")
+                .addConstructorArgReference(beanName(prefix, SESSION_FACTORY))
+                .addConstructorArgReference(beanName(prefix, CONVERTER)));
+        register(registry, beanName(prefix, ASYNC_EXECUTOR), BeanDefinitionBuilder.genericBeanDefinition()
+                .setFactoryMethodOnBean("forKeyspace", KeyspaceExecutors.BEAN_NAME)
+                .addConstructorArgValue(keyspace.getKeyspaceName()));
+        register(registry, beanName(prefix, REACTIVE_SESSION_FACTORY), factoryMethod("reactiveSessionFactory")
+                .addConstructorArgReference(beanName(prefix, SESSION)));
+        // The schema action is performed by the blocking session factory
+        register(registry, beanName(prefix, REACTIVE_CASSANDRA_TEMPLATE), factoryMethod("reactiveCassandraTemplate")
+                .addConstructorArgReference(beanName(prefix, REACTIVE_SESSION_FACTORY))
+                .addConstructorArgReference(beanName(prefix, CONVERTER))
+                .addDependsOn(beanName(prefix, SESSION_FACTORY)));
+    }
+
+    private void registerCassandraTemplate(BeanDefinitionRegistry registry, String prefix, KeyspaceProperties.Keyspace keyspace,
+                                           KeyspaceProperties keyspaceProperties) {
+        int pageSize = keyspaceProperties.resolveDriver(keyspace).getPageSize();
+        if (keyspace.getThrottling().getMaxInFlight() == null) {
+            register(registry, beanName(prefix, CASSANDRA_TEMPLATE), factoryMethod("cassandraTemplate")
+                    .addConstructorArgReference(beanName(prefix, SESSION_FACTORY))
+                    .addConstructorArgReference(beanName(prefix, CONVERTER))
+                    .addConstructorArgValue(pageSize));
+            return;
+        }
+        register(registry, beanName(prefix, THROTTLE), factoryMethod("keyspaceThrottle")
+                .addConstructorArgReference(KeyspaceProperties.BEAN_NAME)
+                .addConstructorArgValue(prefix));
+        register(registry, beanName(prefix, CASSANDRA_TEMPLATE), factoryMethod("throttledCassandraTemplate")
+                .addConstructorArgReference(beanName(prefix, SESSION_FACTORY))
+                .addConstructorArgReference(beanName(prefix, CONVERTER))
+                .addConstructorArgValue(pageSize)
+                .addConstructorArgReference(beanName(prefix, THROTTLE)));
+    }
+
+    private void registerRepositories(BeanDefinitionRegistry registry, String prefix, KeyspaceProperties.Keyspace keyspace,
+                                      Map<String, String> repositoryKeyspaces) {
+        ClassPathScanningCandidateComponentProvider scanner = repositoryScanner();
+        for (String basePackage : keyspace.getBasePackages()) {
+            for (BeanDefinition candidate : scanner.findCandidateComponents(basePackage)) {
+                Class<?> repositoryInterface = ClassUtils.resolveClassName(candidate.getBeanClassName(), resourceLoader.getClassLoader());
+                String beanName = Introspector.decapitalize(repositoryInterface.getSimpleName());
+                register(registry, beanName, repositoryFactoryBean(prefix, repositoryInterface));
+                repositoryKeyspaces.put(beanName, keyspace.getKeyspaceName());
+            }
+        }
+    }
+
+    private static BeanDefinitionBuilder repositoryFactoryBean(String prefix, Class<?> repositoryInterface) {
+        RepositoryMetadata metadata = AbstractRepositoryMetadata.getMetadata(repositoryInterface);
+        BeanDefinitionBuilder repository;
+        if (metadata.isReactiveRepository()) {
+            repository = BeanDefinitionBuilder.rootBeanDefinition(ReactiveCassandraRepositoryFactoryBean.class)
+                    .addConstructorArgValue(repositoryInterface)
+                    .addPropertyReference("reactiveCassandraOperations", beanName(prefix, REACTIVE_CASSANDRA_TEMPLATE));
+        } else {
+            repository = BeanDefinitionBuilder.rootBeanDefinition(CassandraRepositoryFactoryBean.class)
+                    .addConstructorArgValue(repositoryInterface)
+                    .addPropertyReference("cassandraTemplate", beanName(prefix, CASSANDRA_TEMPLATE))
+                    .addPropertyValue("repositoryBaseClass", SimpleStreamingCassandraRepository.class);
+        }
+        // The generic target type tells the repository type without creating the factory bean, also in generated code
+        RootBeanDefinition beanDefinition = (RootBeanDefinition) repository.getRawBeanDefinition();
+        beanDefinition.setTargetType(ResolvableType.forClassWithGenerics(
+                beanDefinition.getBeanClass(), repositoryInterface, metadata.getDomainType(), metadata.getIdType()));
+        return repository;
+    }
+
+    private ClassPathScanningCandidateComponentProvider repositoryScanner() {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false, environment) {
+            @Override
+            protected boolean isCandidateComponent(AnnotatedBeanDefinition beanDefinition) {
+                return beanDefinition.getMetadata().isInterface() && beanDefinition.getMetadata().isIndependent();
+            }
+        };
+        scanner.setResourceLoader(resourceLoader);
+        scanner.addIncludeFilter(new AssignableTypeFilter(Repository.class));
+        scanner.addExcludeFilter(new AnnotationTypeFilter(NoRepositoryBean.class));
+        return scanner;
+    }
+
+    private static BeanDefinitionBuilder factoryMethod(String factoryMethodName) {
+        return BeanDefinitionBuilder.rootBeanDefinition(KeyspaceServiceFactory.class, factoryMethodName);
+    }
+
+    private static void register(BeanDefinitionRegistry registry, String beanName, BeanDefinitionBuilder builder) {
+        registry.registerBeanDefinition(beanName, builder.getBeanDefinition());
+    }
+}
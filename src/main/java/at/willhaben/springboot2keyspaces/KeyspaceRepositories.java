@@ -0,0 +1,30 @@
+package at.willhaben.springboot2keyspaces;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Keyspace of every repository registered by {@link KeyspaceRegistrar}, by bean name of the repository. It is kept in
+ * a bean rather than in attributes of the repository bean definitions, which ahead-of-time processing does not retain.
+ */
+@RequiredArgsConstructor
+public class KeyspaceRepositories {
+
+    public static final String BEAN_NAME = "keyspaceRepositories";
+
+    private final Map<String, String> keyspaceNames;
+
+    public Optional<String> getKeyspaceName(String repositoryBeanName) {
+        return Optional.ofNullable(keyspaceNames.get(repositoryBeanName));
+    }
+
+    public List<String> getRepositoryBeanNames(String keyspaceName) {
+        return keyspaceNames.entrySet().stream()
+                .filter(entry -> entry.getValue().equals(keyspaceName))
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+}
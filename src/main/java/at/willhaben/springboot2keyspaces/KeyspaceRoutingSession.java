@@ -0,0 +1,91 @@
+package at.willhaben.springboot2keyspaces;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.datastax.oss.driver.api.core.session.Request;
+import com.datastax.oss.driver.api.core.type.reflect.GenericType;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * View on a shared {@link CqlSession} which routes every statement without an explicit keyspace to the given keyspace.
+ * Statements without an execution profile run in the profile of the keyspace, if it has one.
+ * Closing the view does not close the shared session, its lifecycle is owned by whoever created it.
+ */
+public class KeyspaceRoutingSession extends DelegatingCqlSession {
+
+    private final CqlIdentifier keyspace;
+
+    private final String executionProfileName;
+
+    public KeyspaceRoutingSession(CqlSession delegate, CqlIdentifier keyspace) {
+        this(delegate, keyspace, null);
+    }
+
+    public KeyspaceRoutingSession(CqlSession delegate, CqlIdentifier keyspace, String executionProfileName) {
+        super(delegate);
+        this.keyspace = keyspace;
+        this.executionProfileName = executionProfileName;
+    }
+
+    @Override
+    public <RequestT extends Request, ResultT> ResultT execute(RequestT request, GenericType<ResultT> resultType) {
+        return delegate.execute(route(request), resultType);
+    }
+
+    @Override
+    public PreparedStatement prepare(SimpleStatement statement) {
+        return delegate.prepare((SimpleStatement) route(statement));
+    }
+
+    @Override
+    public PreparedStatement prepare(String query) {
+        return prepare(SimpleStatement.newInstance(query));
+    }
+
+    @Override
+    public CompletionStage<PreparedStatement> prepareAsync(SimpleStatement statement) {
+        return delegate.prepareAsync((SimpleStatement) route(statement));
+    }
+
+    @Override
+    public CompletionStage<PreparedStatement> prepareAsync(String query) {
+        return prepareAsync(SimpleStatement.newInstance(query));
+    }
+
+    private Request route(Request request) {
+        Request routed = request;
+        if (routed instanceof SimpleStatement statement && statement.getKeyspace() == null) {
+            routed = statement.setKeyspace(keyspace);
+        }
+        if (routed instanceof BatchStatement statement && statement.getKeyspace() == null) {
+            routed = statement.setKeyspace(keyspace);
+        }
+        if (executionProfileName != null && routed instanceof Statement<?> statement
+                && statement.getExecutionProfileName() == null && statement.getExecutionProfile() == null) {
+            routed = statement.setExecutionProfileName(executionProfileName);
+        }
+        return routed;
+    }
+
+    @Override
+    public Optional<CqlIdentifier> getKeyspace() {
+        return Optional.of(keyspace);
+    }
+
+    @Override
+    public CompletionStage<Void> closeAsync() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletionStage<Void> forceCloseAsync() {
+        return CompletableFuture.completedFuture(null);
+    }
+}
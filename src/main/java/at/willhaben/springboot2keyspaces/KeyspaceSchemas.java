@@ -0,0 +1,137 @@
+package at.willhaben.springboot2keyspaces;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.datastax.oss.driver.api.core.metadata.Node;
+import com.datastax.oss.driver.api.core.metadata.NodeState;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.cassandra.config.SchemaAction;
+import org.springframework.data.cassandra.core.convert.CassandraConverter;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static at.willhaben.springboot2keyspaces.KeyspaceRegistrar.beanName;
+
+/**
+ * Performs the schema action of all configured keyspaces concurrently instead of one session factory after the other,
+ * and waits for the nodes to agree on the schema once after the keyspace creations and once before any template is
+ * created, the sessions themselves do not wait after every DDL statement. The {@code xSessionFactory} beans
+ * registered by {@link KeyspaceRegistrar} depend on it. Lazy sessions perform their schema action when opened.
+ */
+@Component(KeyspaceSchemas.BEAN_NAME)
+public class KeyspaceSchemas implements InitializingBean, BeanFactoryAware {
+
+    public static final String BEAN_NAME = "keyspaceSchemas";
+
+    private static final long AGREEMENT_POLL_MILLIS = 200;
+
+    private final KeyspaceProperties keyspaceProperties;
+
+    private BeanFactory beanFactory;
+
+    public KeyspaceSchemas(KeyspaceProperties keyspaceProperties) {
+        this.keyspaceProperties = keyspaceProperties;
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) {
+        this.beanFactory = beanFactory;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        String schemaAction = keyspaceProperties.getSchemaAction();
+        Map<String, KeyspaceProperties.Keyspace> keyspaces = keyspaceProperties.getKeyspaces();
+        if (keyspaces.isEmpty() || SchemaAction.valueOf(schemaAction) == SchemaAction.NONE) {
+            return;
+        }
+        Map<CqlSession, CassandraConverter> sessions = new LinkedHashMap<>();
+        keyspaces.keySet().forEach(prefix -> {
+            CqlSession session = beanFactory.getBean(beanName(prefix, KeyspaceRegistrar.SESSION), CqlSession.class);
+            if (!(session instanceof LazyKeyspaceSession)) {
+                sessions.put(session, beanFactory.getBean(beanName(prefix, KeyspaceRegistrar.CONVERTER), CassandraConverter.class));
+            }
+        });
+        if (sessions.isEmpty()) {
+            return;
+        }
+        CqlSession agreementSession = sessions.keySet().iterator().next();
+        // The sessions created their keyspaces without waiting for agreement, the tables must not reach a node without them
+        awaitSchemaAgreement(agreementSession, keyspaceProperties.getSchemaAgreementTimeout());
+
+        List<CompletableFuture<Void>> actions = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(sessions.size(), new CustomizableThreadFactory("keyspace-schema-"));
+        try {
+            sessions.forEach((session, converter) -> actions.add(CompletableFuture.runAsync(
+                    () -> KeyspaceServiceFactory.performSchemaAction(session, converter, schemaAction), executor)));
+            CompletableFuture.allOf(actions.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        } finally {
+            executor.shutdown();
+        }
+        awaitSchemaAgreement(agreementSession, keyspaceProperties.getSchemaAgreementTimeout());
+    }
+
+    /**
+     * The nodes report a single schema version for all keyspaces, so one session checks the agreement for all of them.
+     */
+    private static void awaitSchemaAgreement(CqlSession session, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!checkSchemaAgreement(session)) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Nodes did not agree on the schema within %s".formatted(timeout));
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(AGREEMENT_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for schema agreement", e);
+            }
+        }
+    }
+
+    /**
+     * Compares the schema versions like {@link CqlSession#checkSchemaAgreement()}, which reports no agreement at all
+     * while the agreement timeout of the session is zero. Both tables are read from the same node, peers which are
+     * not up are ignored.
+     */
+    private static boolean checkSchemaAgreement(CqlSession session) {
+        Map<UUID, Node> nodes = session.getMetadata().getNodes();
+        Node coordinator = nodes.values().stream().filter(node -> node.getState() == NodeState.UP).findFirst().orElse(null);
+        if (coordinator == null) {
+            return false;
+        }
+        Set<UUID> versions = new HashSet<>();
+        Row local = session.execute(SimpleStatement.newInstance("SELECT schema_version FROM system.local WHERE key = 'local'")
+                .setNode(coordinator)).one();
+        if (local != null) {
+            versions.add(local.getUuid("schema_version"));
+        }
+        for (Row peer : session.execute(SimpleStatement.newInstance("SELECT host_id, schema_version FROM system.peers").setNode(coordinator))) {
+            Node node = nodes.get(peer.getUuid("host_id"));
+            if (node != null && node.getState() == NodeState.UP) {
+                versions.add(peer.getUuid("schema_version"));
+            }
+        }
+        versions.remove(null);
+        return versions.size() == 1;
+    }
+}
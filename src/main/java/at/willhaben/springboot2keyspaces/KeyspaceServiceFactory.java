@@ -1,69 +1,268 @@
 package at.willhaben.springboot2keyspaces;
 
+import at.willhaben.springboot2keyspaces.mapping.RecordMappingCassandraConverter;
+import at.willhaben.springboot2keyspaces.throttling.KeyspaceThrottle;
+import at.willhaben.springboot2keyspaces.throttling.ThrottlingSession;
+import com.datastax.oss.driver.api.core.CqlIdentifier;
 import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.config.DefaultDriverOption;
+import com.datastax.oss.driver.api.core.config.DriverConfigLoader;
+import com.datastax.oss.driver.api.core.config.ProgrammaticDriverConfigLoaderBuilder;
 import lombok.experimental.UtilityClass;
 import org.springframework.data.cassandra.CassandraManagedTypes;
+import org.springframework.data.cassandra.ReactiveSessionFactory;
 import org.springframework.data.cassandra.SessionFactory;
 import org.springframework.data.cassandra.config.*;
+import org.springframework.data.cassandra.core.AsyncCassandraOperations;
+import org.springframework.data.cassandra.core.AsyncCassandraTemplate;
 import org.springframework.data.cassandra.core.CassandraOperations;
 import org.springframework.data.cassandra.core.CassandraTemplate;
+import org.springframework.data.cassandra.core.ReactiveCassandraOperations;
+import org.springframework.data.cassandra.core.ReactiveCassandraTemplate;
 import org.springframework.data.cassandra.core.convert.CassandraConverter;
 import org.springframework.data.cassandra.core.convert.MappingCassandraConverter;
+import org.springframework.data.cassandra.core.cql.CqlTemplate;
 import org.springframework.data.cassandra.core.cql.keyspace.CreateKeyspaceSpecification;
+import org.springframework.data.cassandra.core.cql.session.DefaultBridgedReactiveSession;
+import org.springframework.data.cassandra.core.cql.session.DefaultReactiveSessionFactory;
+import org.springframework.data.cassandra.core.cql.session.DefaultSessionFactory;
 import org.springframework.data.cassandra.core.cql.keyspace.KeyspaceOption;
 import org.springframework.data.cassandra.core.mapping.CassandraMappingContext;
 import org.springframework.data.cassandra.core.mapping.SimpleUserTypeResolver;
+import org.springframework.data.mapping.model.EntityInstantiators;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 
 @UtilityClass
 public class KeyspaceServiceFactory {
 
-    public static SessionBuilderConfigurer sessionBuilderConfigurer(String username, String password) {
-        return sessionBuilder -> sessionBuilder.withAuthCredentials(username, password);
+    private static final List<String> SESSION_METRICS = List.of("connected-nodes", "cql-requests", "cql-client-timeouts",
+            "bytes-sent", "bytes-received", "throttling.delay", "throttling.errors");
+
+    private static final List<String> NODE_METRICS = List.of("pool.open-connections", "pool.in-flight", "pool.available-streams",
+            "errors.request.timeouts", "errors.request.unavailables");
+
+    /**
+     * @param sessionName name of the sessions, which tags their driver metrics, or {@code null} for generated names
+     * @param profiles execution profiles by name, which are selected per statement, e.g. by the keyspaces of a shared session
+     * @param keyspaceNames keyspaces the sessions serve, only their schema metadata is loaded and refreshed
+     * @param schemaAgreementPerStatement whether the driver waits for schema agreement after every schema change
+     */
+    public static SessionBuilderConfigurer sessionBuilderConfigurer(String username, String password, String sessionName,
+                                                                    KeyspaceProperties.Driver driver, Map<String, KeyspaceProperties.Driver> profiles,
+                                                                    List<String> keyspaceNames, boolean schemaAgreementPerStatement) {
+        // Every session closes its config loader, so each one gets its own
+        return sessionBuilder -> sessionBuilder.withAuthCredentials(username, password)
+                .withConfigLoader(driverConfigLoader(sessionName, driver, profiles, keyspaceNames, schemaAgreementPerStatement));
+    }
+
+    /**
+     * Configurer of the shared session, which serves all configured keyspaces.
+     */
+    public static SessionBuilderConfigurer sharedSessionBuilderConfigurer(KeyspaceProperties keyspaceProperties) {
+        // Their sessions keep the generated driver session names, e.g. s0
+        return sessionBuilderConfigurer(keyspaceProperties.getUsername(), keyspaceProperties.getPassword(), null,
+                keyspaceProperties.resolveDriver(), KeyspaceRegistrar.executionProfiles(keyspaceProperties),
+                keyspaceProperties.getKeyspaces().values().stream().map(KeyspaceProperties.Keyspace::getKeyspaceName).toList(),
+                !schemaAgreementAwaitedOnce(keyspaceProperties));
+    }
+
+    /**
+     * Configurer of the session of a keyspace which is not configured, e.g. a tenant keyspace.
+     */
+    public static SessionBuilderConfigurer additionalSessionBuilderConfigurer(KeyspaceProperties keyspaceProperties, String keyspaceName) {
+        return sessionBuilderConfigurer(keyspaceProperties.getUsername(), keyspaceProperties.getPassword(), null,
+                keyspaceProperties.resolveDriver(), KeyspaceRegistrar.executionProfiles(keyspaceProperties), List.of(keyspaceName), true);
+    }
+
+    public static SessionBuilderConfigurer keyspaceSessionBuilderConfigurer(KeyspaceProperties keyspaceProperties, String prefix) {
+        KeyspaceProperties.Keyspace keyspace = keyspaceProperties.getKeyspaces().get(prefix);
+        return sessionBuilderConfigurer(keyspaceProperties.getUsername(), keyspaceProperties.getPassword(), prefix,
+                keyspaceProperties.resolveDriver(keyspace), Map.of(), List.of(keyspace.getKeyspaceName()),
+                !schemaAgreementAwaitedOnce(keyspaceProperties));
+    }
+
+    /**
+     * {@link KeyspaceSchemas} performs the schema actions of the sessions opened at startup and waits for schema
+     * agreement once afterwards, lazy sessions perform theirs when opened.
+     */
+    static boolean schemaAgreementAwaitedOnce(KeyspaceProperties keyspaceProperties) {
+        return keyspaceProperties.getSchemaAction() != null && getSchemaAction(keyspaceProperties.getSchemaAction()) != SchemaAction.NONE
+                && (keyspaceProperties.getSessionMode() == KeyspaceProperties.SessionMode.SHARED || !keyspaceProperties.isLazySessions());
+    }
+
+    public static DriverConfigLoader driverConfigLoader(String sessionName, KeyspaceProperties.Driver driver,
+                                                        Map<String, KeyspaceProperties.Driver> profiles, List<String> keyspaceNames,
+                                                        boolean schemaAgreementPerStatement) {
+        ProgrammaticDriverConfigLoaderBuilder config = DriverConfigLoader.programmaticBuilder();
+        if (sessionName != null) {
+            config.withString(DefaultDriverOption.SESSION_NAME, sessionName);
+        }
+        // Schema metadata of other keyspaces is neither loaded at startup nor refreshed on their schema changes
+        config.withStringList(DefaultDriverOption.METADATA_SCHEMA_REFRESHED_KEYSPACES, keyspaceNames);
+        if (!schemaAgreementPerStatement) {
+            // A zero timeout skips the wait after each DDL statement, the agreement is awaited once after all of them
+            config.withDuration(DefaultDriverOption.CONTROL_CONNECTION_AGREEMENT_TIMEOUT, Duration.ZERO);
+        }
+        // Session metrics are registered in the registry passed to the session builder, tagged with the session name
+        config.withString(DefaultDriverOption.METRICS_FACTORY_CLASS, "MicrometerMetricsFactory")
+                .withString(DefaultDriverOption.METRICS_ID_GENERATOR_CLASS, "TaggingMetricIdGenerator")
+                .withString(DefaultDriverOption.METRICS_ID_GENERATOR_PREFIX, "cassandra")
+                .withStringList(DefaultDriverOption.METRICS_SESSION_ENABLED, SESSION_METRICS)
+                .withStringList(DefaultDriverOption.METRICS_NODE_ENABLED, NODE_METRICS);
+        if (driver.getPoolSize() != null) {
+            config.withInt(DefaultDriverOption.CONNECTION_POOL_LOCAL_SIZE, driver.getPoolSize());
+        }
+        if (Boolean.TRUE.equals(driver.getCompression())) {
+            config.withString(DefaultDriverOption.PROTOCOL_COMPRESSION, "lz4");
+        }
+        requestOptions(config, driver);
+        profiles.forEach((name, profile) -> requestOptions(config.startProfile(name), profile).endProfile());
+
+        return config.build();
+    }
+
+    private static ProgrammaticDriverConfigLoaderBuilder requestOptions(ProgrammaticDriverConfigLoaderBuilder config, KeyspaceProperties.Driver driver) {
+        if (driver.getRequestTimeout() != null) {
+            config.withDuration(DefaultDriverOption.REQUEST_TIMEOUT, driver.getRequestTimeout());
+        }
+        if (driver.getConsistency() != null) {
+            config.withString(DefaultDriverOption.REQUEST_CONSISTENCY, driver.getConsistency().name());
+        }
+        if (driver.getPageSize() != null) {
+            config.withInt(DefaultDriverOption.REQUEST_PAGE_SIZE, driver.getPageSize());
+        }
+        if (driver.getDefaultIdempotence() != null) {
+            config.withBoolean(DefaultDriverOption.REQUEST_DEFAULT_IDEMPOTENCE, driver.getDefaultIdempotence());
+        }
+        KeyspaceProperties.SpeculativeExecution speculativeExecution = driver.getSpeculativeExecution();
+        if (speculativeExecution.getMaxExecutions() != null) {
+            config.withString(DefaultDriverOption.SPECULATIVE_EXECUTION_POLICY_CLASS, "ConstantSpeculativeExecutionPolicy")
+                    .withInt(DefaultDriverOption.SPECULATIVE_EXECUTION_MAX, speculativeExecution.getMaxExecutions())
+                    .withDuration(DefaultDriverOption.SPECULATIVE_EXECUTION_DELAY, speculativeExecution.getDelay());
+        }
+        return config;
     }
 
     public static CqlSessionFactoryBean session(SessionBuilderConfigurer sessionBuilderConfigurer, String contactPoints, String localDataCenter, String keySpaceName) {
+        CqlSessionFactoryBean session = sharedSession(sessionBuilderConfigurer, contactPoints, localDataCenter);
+        session.setKeyspaceName(keySpaceName);
+        // The keyspace creations sould only be done automatically in the tests
+        session.setKeyspaceCreations(List.of(keyspaceCreation(keySpaceName)));
+
+        return session;
+    }
+
+    public static CqlSessionFactoryBean sharedSession(SessionBuilderConfigurer sessionBuilderConfigurer, String contactPoints, String localDataCenter) {
         CqlSessionFactoryBean session = new CqlSessionFactoryBean();
         session.setContactPoints(contactPoints);
         session.setLocalDatacenter(localDataCenter);
-        session.setKeyspaceName(keySpaceName);
         session.setSessionBuilderConfigurer(sessionBuilderConfigurer);
-        // The keyspace creations sould only be done automatically in the tests
-        CreateKeyspaceSpecification specification = CreateKeyspaceSpecification.createKeyspace(keySpaceName)
-                .ifNotExists()
-                .with(KeyspaceOption.DURABLE_WRITES, true)
-                .withSimpleReplication();
-        session.setKeyspaceCreations(List.of(specification));
 
         return session;
     }
 
+    /**
+     * The schema action is not performed by the session factory, {@link KeyspaceSchemas} performs it for all
+     * configured keyspaces concurrently. A {@link LazyKeyspaceSession} performs it when it is opened for the first time.
+     */
     public static SessionFactoryFactoryBean sessionFactory(CqlSession session, CassandraConverter converter, String schemaAction) {
         SessionFactoryFactoryBean sessionFactory = new SessionFactoryFactoryBean();
         sessionFactory.setSession(session);
         sessionFactory.setConverter(converter);
-        sessionFactory.setSchemaAction(getSchemaAction(schemaAction));
+        sessionFactory.setSchemaAction(SchemaAction.NONE);
+        if (session instanceof LazyKeyspaceSession lazySession) {
+            lazySession.onFirstOpen(opened -> performSchemaAction(opened, converter, schemaAction));
+        }
 
         return sessionFactory;
     }
 
-    public static CassandraMappingContext mappingContext(String... packageNames) throws ClassNotFoundException {
+    static void performSchemaAction(CqlSession session, CassandraConverter converter, String schemaAction) {
+        SessionFactoryFactoryBean sessionFactory = new SessionFactoryFactoryBean();
+        sessionFactory.setSession(session);
+        sessionFactory.setConverter(converter);
+        sessionFactory.setSchemaAction(getSchemaAction(schemaAction));
+        try {
+            sessionFactory.afterPropertiesSet();
+        } catch (Exception e) {
+            throw new IllegalStateException("Schema action %s failed for keyspace %s".formatted(schemaAction,
+                    session.getKeyspace().map(CqlIdentifier::asInternal).orElse(null)), e);
+        }
+    }
+
+    /**
+     * Entities of the packages, ahead-of-time processing replaces the scan with the classes found at build time.
+     */
+    public static CassandraManagedTypes managedTypes(String... packageNames) throws ClassNotFoundException {
+        return CassandraManagedTypes.fromIterable(CassandraEntityClassScanner.scan(packageNames));
+    }
+
+    public static CassandraMappingContext mappingContext(CassandraManagedTypes managedTypes) {
         var context = new CassandraMappingContext();
-        context.setManagedTypes(CassandraManagedTypes.fromIterable(CassandraEntityClassScanner.scan(packageNames)));
+        context.setManagedTypes(managedTypes);
+
+        return context;
+    }
+
+    public static CassandraMappingContext keyspaceMappingContext(CassandraMappingContext sharedMappingContext, CassandraManagedTypes managedTypes) {
+        var context = new KeyspaceMappingContext(sharedMappingContext);
+        context.setManagedTypes(managedTypes);
 
         return context;
     }
 
-    public static CassandraConverter converter(CqlSession session, CassandraMappingContext mappingContext) {
-        MappingCassandraConverter cassandraConverter = new MappingCassandraConverter(mappingContext);
+    public static EntityInstantiators entityInstantiators() {
+        return new EntityInstantiators();
+    }
+
+    public static CassandraConverter converter(CqlSession session, CassandraMappingContext mappingContext, EntityInstantiators instantiators,
+                                               boolean recordMappers) {
+        MappingCassandraConverter cassandraConverter = recordMappers
+                ? new RecordMappingCassandraConverter(mappingContext)
+                : new MappingCassandraConverter(mappingContext);
         cassandraConverter.setUserTypeResolver(new SimpleUserTypeResolver(session));
+        cassandraConverter.setInstantiators(instantiators);
 
         return cassandraConverter;
     }
 
-    public static CassandraOperations cassandraTemplate(SessionFactory sessionFactory, CassandraConverter converter) {
-        return new CassandraTemplate(sessionFactory, converter);
+    public static CassandraOperations cassandraTemplate(SessionFactory sessionFactory, CassandraConverter converter, int pageSize) {
+        CassandraTemplate cassandraTemplate = new CassandraTemplate(sessionFactory, converter);
+        ((CqlTemplate) cassandraTemplate.getCqlOperations()).setPageSize(pageSize);
+
+        return cassandraTemplate;
+    }
+
+    public static KeyspaceThrottle keyspaceThrottle(KeyspaceProperties keyspaceProperties, String prefix) {
+        KeyspaceProperties.Keyspace keyspace = keyspaceProperties.getKeyspaces().get(prefix);
+        return new KeyspaceThrottle(keyspace.getKeyspaceName(), keyspace.getThrottling());
+    }
+
+    public static CassandraOperations throttledCassandraTemplate(SessionFactory sessionFactory, CassandraConverter converter, int pageSize,
+                                                                 KeyspaceThrottle throttle) {
+        return cassandraTemplate(new DefaultSessionFactory(new ThrottlingSession(sessionFactory.getSession(), throttle)), converter, pageSize);
+    }
+
+    public static AsyncCassandraOperations asyncCassandraTemplate(SessionFactory sessionFactory, CassandraConverter converter) {
+        return new AsyncCassandraTemplate(sessionFactory, converter);
+    }
+
+    public static ReactiveSessionFactory reactiveSessionFactory(CqlSession session) {
+        return new DefaultReactiveSessionFactory(new DefaultBridgedReactiveSession(session));
+    }
+
+    public static ReactiveCassandraOperations reactiveCassandraTemplate(ReactiveSessionFactory sessionFactory, CassandraConverter converter) {
+        return new ReactiveCassandraTemplate(sessionFactory, converter);
+    }
+
+    public static CreateKeyspaceSpecification keyspaceCreation(String keySpaceName) {
+        return CreateKeyspaceSpecification.createKeyspace(keySpaceName)
+                .ifNotExists()
+                .with(KeyspaceOption.DURABLE_WRITES, true)
+                .withSimpleReplication();
     }
 
     private static SchemaAction getSchemaAction(String schemaAction) {
@@ -0,0 +1,199 @@
+package at.willhaben.springboot2keyspaces;
+
+import at.willhaben.springboot2keyspaces.statements.KeyspaceStatementCache;
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.cassandra.config.CqlSessionFactoryBean;
+import org.springframework.data.cassandra.config.SessionBuilderConfigurer;
+import org.springframework.data.cassandra.core.cql.generator.CreateKeyspaceCqlGenerator;
+import org.springframework.data.cassandra.core.cql.keyspace.CreateKeyspaceSpecification;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opens the sessions of all configured keyspaces concurrently, the {@code xSession} beans registered by
+ * {@link KeyspaceRegistrar} are looked up from here. With {@code cassandra.lazy-sessions} each keyspace gets a
+ * {@link LazyKeyspaceSession} instead, which is opened on its first request.
+ */
+@Component(KeyspaceSessions.BEAN_NAME)
+@RequiredArgsConstructor
+public class KeyspaceSessions implements InitializingBean, DisposableBean {
+
+    public static final String BEAN_NAME = "keyspaceSessions";
+
+    public static final String SHARED_PREFIX = "shared";
+
+    private final KeyspaceProperties keyspaceProperties;
+
+    private final Map<String, SessionBuilderConfigurer> sessionBuilderConfigurers;
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    private final KeyspaceStatementCache statementCache;
+
+    private final List<CqlSessionFactoryBean> sessionFactoryBeans = new CopyOnWriteArrayList<>();
+
+    private final Map<String, CqlSession> sessions = new ConcurrentHashMap<>();
+
+    private final Map<CqlSession, CqlSessionFactoryBean> additionalSessions = new ConcurrentHashMap<>();
+
+    private CqlSession sharedSession;
+
+    private ScheduledExecutorService idleSessionCloser;
+
+    public CqlSession getSession(String prefix) {
+        return sessions.get(prefix);
+    }
+
+    /**
+     * Opens a session for a keyspace which is not configured, e.g. a tenant keyspace. The keyspace is not created, the
+     * session has to be released with {@link #closeSession(CqlSession)}.
+     */
+    public CqlSession openSession(String keyspaceName) {
+        if (sharedSession != null) {
+            return statementCache.register(keyspaceName, new KeyspaceRoutingSession(sharedSession, CqlIdentifier.fromCql(keyspaceName)));
+        }
+        CqlSessionFactoryBean sessionFactoryBean = KeyspaceServiceFactory.sharedSession(
+                withMetricRegistry(KeyspaceServiceFactory.additionalSessionBuilderConfigurer(keyspaceProperties, keyspaceName)),
+                keyspaceProperties.getContactPoints(), keyspaceProperties.getLocalDataCenter());
+        sessionFactoryBean.setKeyspaceName(keyspaceName);
+        sessionFactoryBean.afterPropertiesSet();
+        CqlSession session = statementCache.register(keyspaceName, sessionFactoryBean.getObject());
+        additionalSessions.put(session, sessionFactoryBean);
+        return session;
+    }
+
+    public void closeSession(CqlSession session) {
+        statementCache.unregister(session);
+        CqlSessionFactoryBean sessionFactoryBean = additionalSessions.remove(session);
+        if (sessionFactoryBean != null) {
+            sessionFactoryBean.destroy();
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Map<String, KeyspaceProperties.Keyspace> keyspaces = keyspaceProperties.getKeyspaces();
+        try {
+            if (keyspaceProperties.getSessionMode() == KeyspaceProperties.SessionMode.SHARED) {
+                openSharedSession(keyspaces);
+            } else if (keyspaceProperties.isLazySessions()) {
+                createLazySessions(keyspaces);
+            } else {
+                openSessions(keyspaces);
+            }
+        } catch (CompletionException e) {
+            destroy();
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private void openSessions(Map<String, KeyspaceProperties.Keyspace> keyspaces) {
+        Map<String, CompletableFuture<CqlSession>> futures = new LinkedHashMap<>();
+        // Only needed while the sessions are opened
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, keyspaces.size()), new CustomizableThreadFactory("keyspace-bootstrap-"));
+        try {
+            keyspaces.forEach((prefix, keyspace) -> futures.put(prefix, CompletableFuture.supplyAsync(
+                    () -> open(KeyspaceServiceFactory.session(sessionBuilderConfigurer(prefix),
+                            keyspaceProperties.getContactPoints(), keyspaceProperties.getLocalDataCenter(), keyspace.getKeyspaceName())),
+                    executor)));
+            CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new)).join();
+        } finally {
+            executor.shutdown();
+        }
+        futures.forEach((prefix, future) -> sessions.put(prefix,
+                statementCache.register(keyspaces.get(prefix).getKeyspaceName(), future.join())));
+    }
+
+    private void createLazySessions(Map<String, KeyspaceProperties.Keyspace> keyspaces) {
+        keyspaces.forEach((prefix, keyspace) -> sessions.put(prefix, new LazyKeyspaceSession(
+                CqlIdentifier.fromCql(keyspace.getKeyspaceName()), () -> openLazySession(prefix, keyspace), this::closeSession)));
+
+        Duration idleTimeout = keyspaceProperties.getSessionIdleTimeout();
+        if (idleTimeout != null) {
+            long period = Math.max(1, idleTimeout.toMillis() / 2);
+            idleSessionCloser = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("keyspace-idle-closer-"));
+            idleSessionCloser.scheduleWithFixedDelay(() -> sessions.values().forEach(session ->
+                    ((LazyKeyspaceSession) session).closeIfIdle(idleTimeout)), period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private CqlSession openLazySession(String prefix, KeyspaceProperties.Keyspace keyspace) {
+        CqlSessionFactoryBean sessionFactoryBean = KeyspaceServiceFactory.session(sessionBuilderConfigurer(prefix),
+                keyspaceProperties.getContactPoints(), keyspaceProperties.getLocalDataCenter(), keyspace.getKeyspaceName());
+        sessionFactoryBean.afterPropertiesSet();
+        CqlSession session = statementCache.register(keyspace.getKeyspaceName(), sessionFactoryBean.getObject());
+        additionalSessions.put(session, sessionFactoryBean);
+        return session;
+    }
+
+    private void openSharedSession(Map<String, KeyspaceProperties.Keyspace> keyspaces) {
+        sharedSession = open(KeyspaceServiceFactory.sharedSession(sessionBuilderConfigurer(SHARED_PREFIX),
+                keyspaceProperties.getContactPoints(), keyspaceProperties.getLocalDataCenter()));
+
+        Map<String, CreateKeyspaceSpecification> creations = new LinkedHashMap<>();
+        keyspaces.forEach((prefix, keyspace) -> creations.put(prefix, KeyspaceServiceFactory.keyspaceCreation(keyspace.getKeyspaceName())));
+        // The keyspace creations sould only be done automatically in the tests
+        CompletableFuture.allOf(creations.values().stream()
+                .map(creation -> sharedSession.executeAsync(CreateKeyspaceCqlGenerator.toCql(creation)).toCompletableFuture())
+                .toArray(CompletableFuture[]::new)).join();
+        // Keyspaces with own request settings run their statements in the execution profile named by their prefix
+        Set<String> executionProfiles = KeyspaceRegistrar.executionProfiles(keyspaceProperties).keySet();
+        creations.forEach((prefix, creation) -> sessions.put(prefix, statementCache.register(creation.getName().asInternal(),
+                new KeyspaceRoutingSession(sharedSession, creation.getName(), executionProfiles.contains(prefix) ? prefix : null))));
+    }
+
+    private CqlSession open(CqlSessionFactoryBean sessionFactoryBean) {
+        sessionFactoryBean.afterPropertiesSet();
+        sessionFactoryBeans.add(sessionFactoryBean);
+        return sessionFactoryBean.getObject();
+    }
+
+    private SessionBuilderConfigurer sessionBuilderConfigurer(String prefix) {
+        return withMetricRegistry(sessionBuilderConfigurers.get(KeyspaceRegistrar.beanName(prefix, KeyspaceRegistrar.SESSION_BUILDER_CONFIGURER)));
+    }
+
+    private SessionBuilderConfigurer withMetricRegistry(SessionBuilderConfigurer sessionBuilderConfigurer) {
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        return sessionBuilder -> sessionBuilderConfigurer.configure(sessionBuilder).withMetricRegistry(registry);
+    }
+
+    @Override
+    public void destroy() {
+        if (idleSessionCloser != null) {
+            idleSessionCloser.shutdownNow();
+            idleSessionCloser = null;
+        }
+        sessions.values().stream()
+                .filter(LazyKeyspaceSession.class::isInstance)
+                .forEach(CqlSession::close);
+        additionalSessions.keySet().forEach(statementCache::unregister);
+        additionalSessions.values().forEach(CqlSessionFactoryBean::destroy);
+        additionalSessions.clear();
+        sessions.values().forEach(statementCache::unregister);
+        sessionFactoryBeans.forEach(CqlSessionFactoryBean::destroy);
+        sessionFactoryBeans.clear();
+        sessions.clear();
+        sharedSession = null;
+    }
+}
@@ -0,0 +1,12 @@
+package at.willhaben.springboot2keyspaces;
+
+import at.willhaben.springboot2keyspaces.aot.KeyspaceRuntimeHints;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+@Configuration
+@Import(KeyspaceRegistrar.class)
+@ImportRuntimeHints(KeyspaceRuntimeHints.class)
+public class KeyspacesConfiguration {
+}
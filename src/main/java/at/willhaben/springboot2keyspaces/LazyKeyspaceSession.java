@@ -0,0 +1,319 @@
+package at.willhaben.springboot2keyspaces;
+
+import com.datastax.dse.driver.api.core.cql.reactive.ReactiveResultSet;
+import com.datastax.dse.driver.api.core.cql.reactive.ReactiveRow;
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.context.DriverContext;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinitions;
+import com.datastax.oss.driver.api.core.cql.ExecutionInfo;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.datastax.oss.driver.api.core.metadata.Metadata;
+import com.datastax.oss.driver.api.core.metrics.Metrics;
+import com.datastax.oss.driver.api.core.session.Request;
+import com.datastax.oss.driver.api.core.type.reflect.GenericType;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Session of a keyspace which is opened on its first request instead of at startup. Concurrent first requests open a
+ * single session. An idle session can be closed with {@link #closeIfIdle(Duration)}, the next request opens it again.
+ * Requests hold a read lock while they are sent and count as in flight until they complete, asynchronous ones until
+ * their future completed and reactive ones from subscription until they terminate. Closing an idle session only takes
+ * the write lock if it is free, so it never delays a request. Opening uses a lock instead of a monitor, so virtual
+ * threads waiting for the session do not pin their carrier thread.
+ * <p>
+ * Pages of a result set beyond the first are fetched by the driver directly, iterating a result set for longer than
+ * the idle timeout after its request fails once the session is closed.
+ */
+public class LazyKeyspaceSession implements CqlSession {
+
+    private final CqlIdentifier keyspace;
+
+    private final Supplier<CqlSession> opener;
+
+    private final Consumer<CqlSession> closer;
+
+    private final List<Consumer<CqlSession>> firstOpenCallbacks = new CopyOnWriteArrayList<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Lock openLock = new ReentrantLock();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final CompletableFuture<Void> closeFuture = new CompletableFuture<>();
+
+    private volatile CqlSession session;
+
+    private volatile long lastUsedNanos = System.nanoTime();
+
+    private boolean opened;
+
+    private boolean closed;
+
+    public LazyKeyspaceSession(CqlIdentifier keyspace, Supplier<CqlSession> opener, Consumer<CqlSession> closer) {
+        this.keyspace = keyspace;
+        this.opener = opener;
+        this.closer = closer;
+    }
+
+    /**
+     * Runs the callback on the session once it is opened for the first time, before any request is sent, e.g. to
+     * perform the schema action of the keyspace.
+     */
+    public void onFirstOpen(Consumer<CqlSession> callback) {
+        firstOpenCallbacks.add(callback);
+    }
+
+    public boolean isOpen() {
+        return session != null;
+    }
+
+    /**
+     * Closes the session if no request is in flight and none was sent within the idle timeout.
+     *
+     * @return whether the session was closed
+     */
+    public boolean closeIfIdle(Duration idleTimeout) {
+        if (session == null || !lock.writeLock().tryLock()) {
+            return false;
+        }
+        CqlSession idle;
+        try {
+            if (session == null || inFlight.get() > 0 || System.nanoTime() - lastUsedNanos < idleTimeout.toNanos()) {
+                return false;
+            }
+            idle = session;
+            session = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        closer.accept(idle);
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <RequestT extends Request, ResultT> ResultT execute(RequestT request, GenericType<ResultT> resultType) {
+        // Reactive results are only sent on subscription, the session is looked up and counted from then on
+        if (resultType.getRawType() == ReactiveResultSet.class) {
+            return (ResultT) new LazyReactiveResultSet(() -> (ReactiveResultSet) session().execute(request, resultType));
+        }
+        return execute(() -> session().execute(request, resultType));
+    }
+
+    @Override
+    public PreparedStatement prepare(SimpleStatement statement) {
+        return execute(() -> session().prepare(statement));
+    }
+
+    @Override
+    public PreparedStatement prepare(String query) {
+        return execute(() -> session().prepare(query));
+    }
+
+    @Override
+    public CompletionStage<PreparedStatement> prepareAsync(SimpleStatement statement) {
+        return execute(() -> session().prepareAsync(statement));
+    }
+
+    @Override
+    public CompletionStage<PreparedStatement> prepareAsync(String query) {
+        return execute(() -> session().prepareAsync(query));
+    }
+
+    /**
+     * Runs the call under the read lock, its result counts as in flight until it completed if it is asynchronous.
+     */
+    private <T> T execute(Supplier<T> call) {
+        T result = started(call);
+        if (result instanceof CompletionStage<?> stage) {
+            stage.whenComplete((ignored, error) -> completed());
+        } else {
+            completed();
+        }
+        return result;
+    }
+
+    private <T> T started(Supplier<T> call) {
+        lock.readLock().lock();
+        inFlight.incrementAndGet();
+        try {
+            return call.get();
+        } catch (RuntimeException | Error e) {
+            completed();
+            throw e;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void completed() {
+        lastUsedNanos = System.nanoTime();
+        inFlight.decrementAndGet();
+    }
+
+    private CqlSession session() {
+        CqlSession current = session;
+        if (current != null) {
+            return current;
+        }
+        openLock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Session of keyspace %s is closed".formatted(keyspace.asInternal()));
+            }
+            if (session == null) {
+                CqlSession opening = opener.get();
+                if (!opened) {
+                    firstOpenCallbacks.forEach(callback -> callback.accept(opening));
+                    opened = true;
+                }
+                session = opening;
+            }
+            return session;
+        } finally {
+            openLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<CqlIdentifier> getKeyspace() {
+        return Optional.of(keyspace);
+    }
+
+    @Override
+    public String getName() {
+        return keyspace.asInternal();
+    }
+
+    @Override
+    public Metadata getMetadata() {
+        return execute(() -> session().getMetadata());
+    }
+
+    @Override
+    public boolean isSchemaMetadataEnabled() {
+        return execute(() -> session().isSchemaMetadataEnabled());
+    }
+
+    @Override
+    public CompletionStage<Metadata> setSchemaMetadataEnabled(Boolean newValue) {
+        return execute(() -> session().setSchemaMetadataEnabled(newValue));
+    }
+
+    @Override
+    public CompletionStage<Metadata> refreshSchemaAsync() {
+        return execute(() -> session().refreshSchemaAsync());
+    }
+
+    @Override
+    public CompletionStage<Boolean> checkSchemaAgreementAsync() {
+        return execute(() -> session().checkSchemaAgreementAsync());
+    }
+
+    @Override
+    public DriverContext getContext() {
+        return execute(() -> session().getContext());
+    }
+
+    @Override
+    public Optional<Metrics> getMetrics() {
+        return execute(() -> session().getMetrics());
+    }
+
+    @Override
+    public CompletionStage<Void> closeFuture() {
+        return closeFuture;
+    }
+
+    @Override
+    public CompletionStage<Void> closeAsync() {
+        CqlSession open;
+        lock.writeLock().lock();
+        openLock.lock();
+        try {
+            closed = true;
+            open = session;
+            session = null;
+        } finally {
+            openLock.unlock();
+            lock.writeLock().unlock();
+        }
+        if (open != null) {
+            closer.accept(open);
+        }
+        closeFuture.complete(null);
+        return closeFuture;
+    }
+
+    @Override
+    public CompletionStage<Void> forceCloseAsync() {
+        return closeAsync();
+    }
+
+    /**
+     * Sends the request on subscription like the driver's reactive result set, which is counted as in flight until it
+     * terminates or is cancelled. It can be subscribed once.
+     */
+    private final class LazyReactiveResultSet implements ReactiveResultSet {
+
+        private final Supplier<ReactiveResultSet> request;
+
+        private final AtomicBoolean subscribed = new AtomicBoolean();
+
+        private final Sinks.One<ReactiveResultSet> resultSet = Sinks.one();
+
+        private LazyReactiveResultSet(Supplier<ReactiveResultSet> request) {
+            this.request = request;
+        }
+
+        @Override
+        public void subscribe(Subscriber<? super ReactiveRow> subscriber) {
+            if (!subscribed.compareAndSet(false, true)) {
+                Flux.<ReactiveRow>error(new IllegalStateException("Reactive result set can only be subscribed once")).subscribe(subscriber);
+                return;
+            }
+            Flux.defer(() -> {
+                ReactiveResultSet started = started(request);
+                resultSet.tryEmitValue(started);
+                return Flux.from(started).doFinally(signal -> completed());
+            }).doOnError(resultSet::tryEmitError).subscribe(subscriber);
+        }
+
+        @Override
+        public Publisher<? extends ColumnDefinitions> getColumnDefinitions() {
+            return resultSet.asMono().flatMap(started -> Mono.from(started.getColumnDefinitions()));
+        }
+
+        @Override
+        public Publisher<? extends ExecutionInfo> getExecutionInfos() {
+            return resultSet.asMono().flatMapMany(ReactiveResultSet::getExecutionInfos);
+        }
+
+        @Override
+        public Publisher<Boolean> wasApplied() {
+            return resultSet.asMono().flatMap(started -> Mono.from(started.wasApplied()));
+        }
+    }
+}
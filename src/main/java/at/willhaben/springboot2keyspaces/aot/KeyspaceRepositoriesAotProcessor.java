@@ -0,0 +1,48 @@
+package at.willhaben.springboot2keyspaces.aot;
+
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotContribution;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.core.support.AbstractRepositoryMetadata;
+import org.springframework.transaction.interceptor.TransactionalProxy;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Runtime hints for the repositories of the keyspaces. Spring Data only contributes them for repositories declared
+ * with {@code @EnableCassandraRepositories}, the repositories registered by
+ * {@link at.willhaben.springboot2keyspaces.KeyspaceRegistrar} and the routing repositories need them as well: the
+ * repository proxies, the query methods of the repository interfaces and the reflective access to their entities.
+ */
+public class KeyspaceRepositoriesAotProcessor implements BeanFactoryInitializationAotProcessor {
+
+    @Override
+    public BeanFactoryInitializationAotContribution processAheadOfTime(ConfigurableListableBeanFactory beanFactory) {
+        Set<Class<?>> repositoryInterfaces = new LinkedHashSet<>();
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            Class<?> type = beanFactory.getType(beanName, false);
+            if (type != null && type.isInterface() && Repository.class.isAssignableFrom(type)) {
+                repositoryInterfaces.add(type);
+            }
+        }
+        if (repositoryInterfaces.isEmpty()) {
+            return null;
+        }
+        return (generationContext, beanFactoryInitializationCode) ->
+                repositoryInterfaces.forEach(repositoryInterface -> registerHints(generationContext.getRuntimeHints(), repositoryInterface));
+    }
+
+    private static void registerHints(RuntimeHints hints, Class<?> repositoryInterface) {
+        // Proxies of Spring Data and of KeyspaceRoutingRepository
+        hints.proxies().registerJdkProxy(AopProxyUtils.completeJdkProxyInterfaces(repositoryInterface, Repository.class, TransactionalProxy.class));
+        hints.proxies().registerJdkProxy(repositoryInterface);
+        hints.reflection().registerType(repositoryInterface, MemberCategory.INVOKE_PUBLIC_METHODS);
+        hints.reflection().registerType(AbstractRepositoryMetadata.getMetadata(repositoryInterface).getDomainType(),
+                MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_DECLARED_METHODS, MemberCategory.DECLARED_FIELDS);
+    }
+}
@@ -0,0 +1,34 @@
+package at.willhaben.springboot2keyspaces.aot;
+
+import at.willhaben.springboot2keyspaces.streaming.SimpleStreamingCassandraRepository;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.data.cassandra.repository.support.SimpleReactiveCassandraRepository;
+
+import java.util.List;
+
+/**
+ * Classes created reflectively by the keyspace setup: the repository base classes of the keyspaces and the driver
+ * components which {@link at.willhaben.springboot2keyspaces.KeyspaceServiceFactory#driverConfigLoader} names in the
+ * driver configuration.
+ */
+public class KeyspaceRuntimeHints implements RuntimeHintsRegistrar {
+
+    private static final List<String> DRIVER_COMPONENTS = List.of(
+            "com.datastax.oss.driver.internal.metrics.micrometer.MicrometerMetricsFactory",
+            "com.datastax.oss.driver.internal.core.metrics.TaggingMetricIdGenerator",
+            "com.datastax.oss.driver.internal.core.specex.ConstantSpeculativeExecutionPolicy",
+            "com.datastax.oss.driver.internal.core.protocol.Lz4Compressor");
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        hints.reflection().registerType(SimpleStreamingCassandraRepository.class,
+                MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+        hints.reflection().registerType(SimpleReactiveCassandraRepository.class,
+                MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+        DRIVER_COMPONENTS.forEach(component -> hints.reflection().registerType(TypeReference.of(component),
+                MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS));
+    }
+}
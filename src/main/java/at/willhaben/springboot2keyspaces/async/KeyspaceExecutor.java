@@ -0,0 +1,36 @@
+package at.willhaben.springboot2keyspaces.async;
+
+import at.willhaben.springboot2keyspaces.routing.KeyspaceContext;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Runs blocking repository and template calls of a single keyspace in the background, e.g.
+ * {@code aAsyncExecutor.supplyAsync(() -> aRepository.findById(id))}. The keyspace is bound to the
+ * {@link KeyspaceContext} while a call runs, so routing repositories called from it use this keyspace as well.
+ */
+public class KeyspaceExecutor {
+
+    private final String keyspaceName;
+
+    private final Executor executor;
+
+    public KeyspaceExecutor(String keyspaceName, Executor executor) {
+        this.keyspaceName = keyspaceName;
+        this.executor = executor;
+    }
+
+    public String getKeyspaceName() {
+        return keyspaceName;
+    }
+
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(() -> KeyspaceContext.call(keyspaceName, call), executor);
+    }
+
+    public CompletableFuture<Void> runAsync(Runnable call) {
+        return CompletableFuture.runAsync(() -> KeyspaceContext.run(keyspaceName, call), executor);
+    }
+}
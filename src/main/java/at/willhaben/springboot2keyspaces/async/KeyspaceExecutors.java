@@ -0,0 +1,55 @@
+package at.willhaben.springboot2keyspaces.async;
+
+import at.willhaben.springboot2keyspaces.KeyspaceProperties;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executor shared by the {@link KeyspaceExecutor} of every keyspace, the {@code xAsyncExecutor} beans registered by
+ * {@code KeyspaceRegistrar} are looked up from here. With {@code cassandra.async.virtual-threads} every call runs on
+ * its own virtual thread, which requires Java 21. Otherwise calls run on a fixed pool of platform threads.
+ */
+@Component(KeyspaceExecutors.BEAN_NAME)
+public class KeyspaceExecutors implements DisposableBean {
+
+    public static final String BEAN_NAME = "keyspaceExecutors";
+
+    private final boolean virtualThreads;
+
+    private final ExecutorService executor;
+
+    public KeyspaceExecutors(KeyspaceProperties keyspaceProperties) {
+        KeyspaceProperties.Async async = keyspaceProperties.getAsync();
+        this.virtualThreads = async.isVirtualThreads();
+        this.executor = async.isVirtualThreads()
+                ? newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(async.getPoolSize(), new CustomizableThreadFactory("keyspace-async-"));
+    }
+
+    public KeyspaceExecutor forKeyspace(String keyspaceName) {
+        return new KeyspaceExecutor(keyspaceName, executor);
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    // The project compiles for Java 17, the executor is looked up when virtual threads are enabled on Java 21
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("cassandra.async.virtual-threads requires Java 21, running on Java %s"
+                    .formatted(Runtime.version().feature()), e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
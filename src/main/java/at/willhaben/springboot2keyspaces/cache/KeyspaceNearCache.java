@@ -0,0 +1,72 @@
+package at.willhaben.springboot2keyspaces.cache;
+
+import at.willhaben.springboot2keyspaces.KeyspaceProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the point lookups of a single keyspace. Each keyspace has its own instance, so an id never resolves to the
+ * entity of another keyspace. Lookups by id are invalidated per id, lookups by query are keyed with a generation of the
+ * entity type which every write advances, so a write makes all cached queries of its entity type unreachable at once.
+ */
+public class KeyspaceNearCache {
+
+    private final Cache<Key, Optional<Object>> cache;
+
+    private final Map<Class<?>, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    public KeyspaceNearCache(String keyspaceName, KeyspaceProperties.NearCache nearCache, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(nearCache.getMaximumSize())
+                .expireAfterWrite(nearCache.getExpireAfterWrite())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "cassandra.near-cache", Tags.of("keyspace", keyspaceName));
+    }
+
+    /**
+     * Returns the cached entity with the id or loads it, a missing entity is cached as well.
+     */
+    public Optional<Object> getById(Class<?> entityType, Object id, Supplier<Optional<Object>> loader) {
+        return cache.get(new Key(entityType, id, 0), key -> loader.get());
+    }
+
+    /**
+     * Returns the cached result of the query or runs it, queries are identified by method and arguments.
+     */
+    public Optional<Object> getByQuery(Class<?> entityType, Object query, Supplier<Optional<Object>> loader) {
+        return cache.get(new Key(entityType, query, generation(entityType).get()), key -> loader.get());
+    }
+
+    /**
+     * Called after an entity was written. A lookup running concurrently is completed before its entry is removed.
+     */
+    public void invalidate(Class<?> entityType, Object id) {
+        cache.invalidate(new Key(entityType, id, 0));
+        generation(entityType).incrementAndGet();
+    }
+
+    public void invalidateAll(Class<?> entityType) {
+        generation(entityType).incrementAndGet();
+        cache.asMap().keySet().removeIf(key -> key.entityType() == entityType);
+    }
+
+    private AtomicLong generation(Class<?> entityType) {
+        return generations.computeIfAbsent(entityType, type -> new AtomicLong(1));
+    }
+
+    /**
+     * Lookups by id have generation {@code 0}, query generations start at {@code 1}.
+     */
+    private record Key(Class<?> entityType, Object key, long generation) {
+    }
+}
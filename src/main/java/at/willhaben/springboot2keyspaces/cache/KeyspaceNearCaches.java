@@ -0,0 +1,75 @@
+package at.willhaben.springboot2keyspaces.cache;
+
+import at.willhaben.springboot2keyspaces.KeyspaceProperties;
+import at.willhaben.springboot2keyspaces.KeyspaceRepositories;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.data.repository.core.support.RepositoryFactoryCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link KeyspaceNearCache} of every configured keyspace with {@code near-cache.maximum-size} set, created on first use.
+ * The repositories of these keyspaces get a {@link NearCacheInterceptor}, the same way
+ * {@link at.willhaben.springboot2keyspaces.metrics.KeyspaceRepositoryMetrics} adds its metrics.
+ */
+@Component
+public class KeyspaceNearCaches implements BeanPostProcessor, Ordered {
+
+    // Resolved lazily, a post processor must not initialize other beans early
+    private final ObjectProvider<KeyspaceProperties> keyspaceProperties;
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    private final ObjectProvider<KeyspaceRepositories> keyspaceRepositories;
+
+    private final Map<String, Optional<KeyspaceNearCache>> nearCaches = new ConcurrentHashMap<>();
+
+    public KeyspaceNearCaches(ObjectProvider<KeyspaceProperties> keyspaceProperties, ObjectProvider<MeterRegistry> meterRegistry,
+                              ObjectProvider<KeyspaceRepositories> keyspaceRepositories) {
+        this.keyspaceProperties = keyspaceProperties;
+        this.meterRegistry = meterRegistry;
+        this.keyspaceRepositories = keyspaceRepositories;
+    }
+
+    public Optional<KeyspaceNearCache> getNearCache(String keyspaceName) {
+        return nearCaches.computeIfAbsent(keyspaceName, this::createNearCache);
+    }
+
+    public RepositoryFactoryCustomizer forKeyspace(String keyspaceName) {
+        return repositoryFactory -> getNearCache(keyspaceName).ifPresent(nearCache -> repositoryFactory.addRepositoryProxyPostProcessor(
+                (factory, repositoryInformation) -> factory.addAdvice(new NearCacheInterceptor(nearCache, repositoryInformation,
+                        repositoryFactory.getEntityInformation(repositoryInformation.getDomainType())))));
+    }
+
+    private Optional<KeyspaceNearCache> createNearCache(String keyspaceName) {
+        return keyspaceProperties.getObject().getKeyspaces().values().stream()
+                .filter(keyspace -> keyspace.getKeyspaceName().equals(keyspaceName) && keyspace.getNearCache().getMaximumSize() != null)
+                .findFirst()
+                .map(keyspace -> new KeyspaceNearCache(keyspaceName, keyspace.getNearCache(),
+                        meterRegistry.getIfAvailable(() -> Metrics.globalRegistry)));
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> repositoryFactoryBean) {
+            keyspaceRepositories.getObject().getKeyspaceName(beanName)
+                    .ifPresent(keyspaceName -> repositoryFactoryBean.addRepositoryFactoryCustomizer(forKeyspace(keyspaceName)));
+        }
+        return bean;
+    }
+
+    @Override
+    public int getOrder() {
+        // After the repository metrics, so cache hits are timed as well
+        return 1;
+    }
+}
@@ -0,0 +1,125 @@
+package at.willhaben.springboot2keyspaces.cache;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.data.repository.core.EntityInformation;
+import org.springframework.data.repository.core.RepositoryInformation;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves {@code findById} and query methods returning a single entity from the {@link KeyspaceNearCache} of the
+ * repository's keyspace and invalidates it after every {@code save}, {@code insert} and {@code delete} of the repository.
+ * Cached entities are shared between callers and must not be modified.
+ */
+public class NearCacheInterceptor implements MethodInterceptor {
+
+    private final KeyspaceNearCache nearCache;
+
+    private final RepositoryInformation repositoryInformation;
+
+    private final EntityInformation<Object, ?> entityInformation;
+
+    private final Map<Method, Operation> operations = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    public NearCacheInterceptor(KeyspaceNearCache nearCache, RepositoryInformation repositoryInformation,
+                                EntityInformation<?, ?> entityInformation) {
+        this.nearCache = nearCache;
+        this.repositoryInformation = repositoryInformation;
+        this.entityInformation = (EntityInformation<Object, ?>) entityInformation;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        Class<?> entityType = entityInformation.getJavaType();
+        return switch (operations.computeIfAbsent(method, this::operation)) {
+            case LOOKUP_BY_ID -> nearCache.getById(entityType, invocation.getArguments()[0], () -> proceed(invocation));
+            case LOOKUP_BY_QUERY -> result(method, nearCache.getByQuery(entityType,
+                    new Query(method, Arrays.asList(invocation.getArguments())), () -> proceed(invocation)));
+            case WRITE -> write(invocation);
+            case OTHER -> invocation.proceed();
+        };
+    }
+
+    private Object write(MethodInvocation invocation) throws Throwable {
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (Throwable e) {
+            // The write may have been applied nevertheless
+            invalidate(invocation.getArguments());
+            throw e;
+        }
+        if (result instanceof Mono<?> mono) {
+            return mono.doFinally(signal -> invalidate(invocation.getArguments()));
+        }
+        if (result instanceof Flux<?> flux) {
+            return flux.doFinally(signal -> invalidate(invocation.getArguments()));
+        }
+        invalidate(invocation.getArguments());
+        return result;
+    }
+
+    private void invalidate(Object[] arguments) {
+        Class<?> entityType = entityInformation.getJavaType();
+        if (arguments.length == 0 || !(arguments[0] instanceof Iterable<?>) && !isEntityOrId(arguments[0])) {
+            nearCache.invalidateAll(entityType);
+            return;
+        }
+        Iterable<?> written = arguments[0] instanceof Iterable<?> iterable ? iterable : List.of(arguments[0]);
+        for (Object entityOrId : written) {
+            nearCache.invalidate(entityType, entityType.isInstance(entityOrId) ? entityInformation.getRequiredId(entityOrId) : entityOrId);
+        }
+    }
+
+    private boolean isEntityOrId(Object argument) {
+        return entityInformation.getJavaType().isInstance(argument) || entityInformation.getIdType().isInstance(argument);
+    }
+
+    private static Optional<Object> proceed(MethodInvocation invocation) {
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+        return result instanceof Optional<?> optional ? Optional.ofNullable(optional.orElse(null)) : Optional.ofNullable(result);
+    }
+
+    private static Object result(Method method, Optional<Object> cached) {
+        return method.getReturnType() == Optional.class ? cached : cached.orElse(null);
+    }
+
+    private Operation operation(Method method) {
+        String name = method.getName();
+        if (name.startsWith("save") || name.startsWith("insert") || name.startsWith("delete")) {
+            return Operation.WRITE;
+        }
+        if (name.equals("findById") && method.getParameterCount() == 1 && method.getReturnType() == Optional.class) {
+            return Operation.LOOKUP_BY_ID;
+        }
+        if (repositoryInformation.isQueryMethod(method) && (method.getReturnType() == Optional.class
+                || method.getReturnType() == entityInformation.getJavaType())) {
+            return Operation.LOOKUP_BY_QUERY;
+        }
+        return Operation.OTHER;
+    }
+
+    private enum Operation {
+        LOOKUP_BY_ID, LOOKUP_BY_QUERY, WRITE, OTHER
+    }
+
+    private record Query(Method method, List<Object> arguments) {
+    }
+}
@@ -1,5 +1,7 @@
 package at.willhaben.springboot2keyspaces.global;
 
+import at.willhaben.springboot2keyspaces.streaming.StreamingCassandraRepository;
+import org.springframework.data.cassandra.core.mapping.MapId;
 import org.springframework.data.cassandra.repository.MapIdCassandraRepository;
 import org.springframework.data.cassandra.repository.Query;
 import org.springframework.data.repository.NoRepositoryBean;
@@ -7,7 +9,7 @@ import org.springframework.data.repository.NoRepositoryBean;
 import java.util.UUID;
 
 @NoRepositoryBean
-public interface CRepository extends MapIdCassandraRepository<C> {
+public interface CRepository extends MapIdCassandraRepository<C>, StreamingCassandraRepository<C, MapId> {
 
     @Query
     C findByA(UUID a);
@@ -0,0 +1,16 @@
+package at.willhaben.springboot2keyspaces.global;
+
+import org.springframework.data.cassandra.core.mapping.MapId;
+import org.springframework.data.cassandra.repository.Query;
+import org.springframework.data.cassandra.repository.ReactiveCassandraRepository;
+import org.springframework.data.repository.NoRepositoryBean;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+@NoRepositoryBean
+public interface ReactiveCRepository extends ReactiveCassandraRepository<C, MapId> {
+
+    @Query
+    Mono<C> findByA(UUID a);
+}
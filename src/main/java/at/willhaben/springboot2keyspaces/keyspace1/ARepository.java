@@ -1,7 +1,9 @@
 package at.willhaben.springboot2keyspaces.keyspace1;
 
+import at.willhaben.springboot2keyspaces.streaming.StreamingCassandraRepository;
+import org.springframework.data.cassandra.core.mapping.MapId;
 import org.springframework.data.cassandra.repository.MapIdCassandraRepository;
 
-public interface ARepository extends MapIdCassandraRepository<A> {
+public interface ARepository extends MapIdCassandraRepository<A>, StreamingCassandraRepository<A, MapId> {
 
 }
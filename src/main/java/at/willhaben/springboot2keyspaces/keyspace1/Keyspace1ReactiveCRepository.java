@@ -0,0 +1,5 @@
+package at.willhaben.springboot2keyspaces.keyspace1;
+
+import at.willhaben.springboot2keyspaces.global.ReactiveCRepository;
+
+public interface Keyspace1ReactiveCRepository extends ReactiveCRepository { }
@@ -1,7 +1,9 @@
 package at.willhaben.springboot2keyspaces.keyspace2;
 
+import at.willhaben.springboot2keyspaces.streaming.StreamingCassandraRepository;
+import org.springframework.data.cassandra.core.mapping.MapId;
 import org.springframework.data.cassandra.repository.MapIdCassandraRepository;
 
-public interface BRepository extends MapIdCassandraRepository<B> {
+public interface BRepository extends MapIdCassandraRepository<B>, StreamingCassandraRepository<B, MapId> {
     
 }
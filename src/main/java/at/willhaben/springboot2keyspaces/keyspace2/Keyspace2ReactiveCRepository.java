@@ -0,0 +1,7 @@
+package at.willhaben.springboot2keyspaces.keyspace2;
+
+import at.willhaben.springboot2keyspaces.global.ReactiveCRepository;
+
+public interface Keyspace2ReactiveCRepository extends ReactiveCRepository {
+
+}
@@ -0,0 +1,72 @@
+package at.willhaben.springboot2keyspaces.mapping;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.cql.Row;
+import org.springframework.data.cassandra.core.convert.MappingCassandraConverter;
+import org.springframework.data.cassandra.core.convert.Where;
+import org.springframework.data.cassandra.core.mapping.CassandraMappingContext;
+import org.springframework.data.cassandra.core.mapping.CassandraPersistentEntity;
+import org.springframework.data.projection.EntityProjection;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Converter which reads and writes record entities with a {@link RecordRowMapper} and falls back to the generic
+ * mapping for every other entity, for projections and for rows which do not hold all columns of the record.
+ */
+public class RecordMappingCassandraConverter extends MappingCassandraConverter {
+
+    private final Map<Class<?>, Optional<RecordRowMapper>> mappers = new ConcurrentHashMap<>();
+
+    public RecordMappingCassandraConverter(CassandraMappingContext mappingContext) {
+        super(mappingContext);
+    }
+
+    @Override
+    public <R> R read(Class<R> type, Object row) {
+        if (row instanceof Row cqlRow) {
+            Object entity = readRecord(type, cqlRow);
+            if (entity != null) {
+                return type.cast(entity);
+            }
+        }
+        return super.read(type, row);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R> R project(EntityProjection<R, ?> projection, Row row) {
+        if (!projection.isProjection()) {
+            Object entity = readRecord(projection.getMappedType().getType(), row);
+            if (entity != null) {
+                return (R) entity;
+            }
+        }
+        return super.project(projection, row);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void write(Object source, Object sink, CassandraPersistentEntity<?> entity) {
+        // Where is a map as well, the primary key of deletes and updates is written by the generic mapping
+        if (sink instanceof Map<?, ?> map && !(sink instanceof Where) && entity.getType().isInstance(source)) {
+            Optional<RecordRowMapper> mapper = mapper(entity.getType());
+            if (mapper.isPresent()) {
+                mapper.get().write(source, (Map<CqlIdentifier, Object>) map);
+                return;
+            }
+        }
+        super.write(source, sink, entity);
+    }
+
+    private Object readRecord(Class<?> type, Row row) {
+        return mapper(type).map(mapper -> mapper.read(row)).orElse(null);
+    }
+
+    private Optional<RecordRowMapper> mapper(Class<?> type) {
+        return mappers.computeIfAbsent(type, key -> Optional.ofNullable(getMappingContext().getPersistentEntity(key))
+                .flatMap(RecordRowMapper::of));
+    }
+}
@@ -0,0 +1,151 @@
+package at.willhaben.springboot2keyspaces.mapping;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinitions;
+import com.datastax.oss.driver.api.core.cql.Row;
+import org.springframework.data.cassandra.core.mapping.CassandraPersistentEntity;
+import org.springframework.data.cassandra.core.mapping.CassandraPersistentProperty;
+import org.springframework.data.cassandra.core.mapping.CassandraType;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.RecordComponent;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Maps a record entity from a {@link Row} and into the column values of a statement without going through the generic
+ * conversion of {@link org.springframework.data.cassandra.core.convert.MappingCassandraConverter}. The column of every
+ * record component and the method handles of the canonical constructor and the accessors are resolved once from the
+ * mapping metadata, so column names of a keyspace's mapping (e.g. {@code B.x} stored in column {@code a}) are respected.
+ * Only records whose components all have a type the driver reads and writes natively qualify.
+ */
+public final class RecordRowMapper {
+
+    private static final Set<Class<?>> DRIVER_TYPES = Set.of(String.class, UUID.class, Boolean.class, Byte.class, Short.class,
+            Integer.class, Long.class, Float.class, Double.class, BigInteger.class, BigDecimal.class, Instant.class,
+            LocalDate.class, LocalTime.class, ByteBuffer.class, InetAddress.class);
+
+    private final CqlIdentifier[] columns;
+
+    private final Class<?>[] types;
+
+    private final MethodHandle constructor;
+
+    private final MethodHandle[] accessors;
+
+    // Rows of the same result set share their column definitions, so the indexes are resolved once per result set
+    private volatile ColumnIndexes lastIndexes;
+
+    private RecordRowMapper(CqlIdentifier[] columns, Class<?>[] types, MethodHandle constructor, MethodHandle[] accessors) {
+        this.columns = columns;
+        this.types = types;
+        this.constructor = constructor;
+        this.accessors = accessors;
+    }
+
+    /**
+     * Returns the mapper of the entity, or nothing if the entity is not a record or one of its components needs a conversion.
+     */
+    public static Optional<RecordRowMapper> of(CassandraPersistentEntity<?> entity) {
+        Class<?> type = entity.getType();
+        if (!type.isRecord() || entity.isUserDefinedType()) {
+            return Optional.empty();
+        }
+        RecordComponent[] components = type.getRecordComponents();
+        CqlIdentifier[] columns = new CqlIdentifier[components.length];
+        Class<?>[] types = new Class<?>[components.length];
+        MethodHandle[] accessors = new MethodHandle[components.length];
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            for (int i = 0; i < components.length; i++) {
+                CassandraPersistentProperty property = entity.getPersistentProperty(components[i].getName());
+                if (property == null || !DRIVER_TYPES.contains(property.getType()) || property.isEmbedded()
+                        || property.isCompositePrimaryKey() || property.isAnnotationPresent(CassandraType.class)) {
+                    return Optional.empty();
+                }
+                columns[i] = property.getRequiredColumnName();
+                types[i] = property.getType();
+                if (!components[i].getAccessor().trySetAccessible()) {
+                    return Optional.empty();
+                }
+                accessors[i] = lookup.unreflect(components[i].getAccessor()).asType(MethodType.methodType(Object.class, Object.class));
+            }
+            Constructor<?> canonicalConstructor = type.getDeclaredConstructor(
+                    Arrays.stream(components).map(RecordComponent::getType).toArray(Class<?>[]::new));
+            if (!canonicalConstructor.trySetAccessible()) {
+                return Optional.empty();
+            }
+            MethodHandle constructor = lookup.unreflectConstructor(canonicalConstructor)
+                    .asSpreader(Object[].class, components.length)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+            return Optional.of(new RecordRowMapper(columns, types, constructor, accessors));
+        } catch (ReflectiveOperationException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Reads the record from the row, or returns {@code null} if the row lacks one of its columns, e.g. for a projection.
+     */
+    public Object read(Row row) {
+        int[] indexes = indexes(row.getColumnDefinitions());
+        if (indexes == null) {
+            return null;
+        }
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = row.get(indexes[i], types[i]);
+        }
+        try {
+            return constructor.invokeExact(values);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void write(Object entity, Map<CqlIdentifier, Object> sink) {
+        try {
+            for (int i = 0; i < columns.length; i++) {
+                sink.put(columns[i], accessors[i].invokeExact(entity));
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private int[] indexes(ColumnDefinitions columnDefinitions) {
+        ColumnIndexes last = lastIndexes;
+        if (last != null && last.columnDefinitions() == columnDefinitions) {
+            return last.indexes();
+        }
+        int[] indexes = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            indexes[i] = columnDefinitions.firstIndexOf(columns[i]);
+            if (indexes[i] < 0) {
+                return null;
+            }
+        }
+        lastIndexes = new ColumnIndexes(columnDefinitions, indexes);
+        return indexes;
+    }
+
+    private record ColumnIndexes(ColumnDefinitions columnDefinitions, int[] indexes) {
+    }
+}
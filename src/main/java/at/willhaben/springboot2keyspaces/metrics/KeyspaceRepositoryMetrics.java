@@ -0,0 +1,54 @@
+package at.willhaben.springboot2keyspaces.metrics;
+
+import at.willhaben.springboot2keyspaces.KeyspaceRegistrar;
+import at.willhaben.springboot2keyspaces.KeyspaceRepositories;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.data.repository.core.support.RepositoryFactoryCustomizer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Instruments the repositories of every keyspace with a {@link RepositoryMetricsInterceptor}. The keyspaces of the
+ * repositories registered by {@link KeyspaceRegistrar} are looked up in {@link KeyspaceRepositories}, the repositories
+ * created by {@link at.willhaben.springboot2keyspaces.routing.KeyspaceTemplateCache}
+ * are instrumented through {@link #forKeyspace(String)}. The metrics are the outermost advice, so they include the
+ * near cache.
+ */
+@Component
+public class KeyspaceRepositoryMetrics implements BeanPostProcessor, Ordered {
+
+    // Resolved lazily, a post processor must not initialize other beans early
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    private final ObjectProvider<KeyspaceRepositories> keyspaceRepositories;
+
+    public KeyspaceRepositoryMetrics(ObjectProvider<MeterRegistry> meterRegistry, ObjectProvider<KeyspaceRepositories> keyspaceRepositories) {
+        this.meterRegistry = meterRegistry;
+        this.keyspaceRepositories = keyspaceRepositories;
+    }
+
+    public RepositoryFactoryCustomizer forKeyspace(String keyspaceName) {
+        return repositoryFactory -> repositoryFactory.addRepositoryProxyPostProcessor((factory, repositoryInformation) ->
+                factory.addAdvice(new RepositoryMetricsInterceptor(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry),
+                        keyspaceName, repositoryInformation)));
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> repositoryFactoryBean) {
+            keyspaceRepositories.getObject().getKeyspaceName(beanName)
+                    .ifPresent(keyspaceName -> repositoryFactoryBean.addRepositoryFactoryCustomizer(forKeyspace(keyspaceName)));
+        }
+        return bean;
+    }
+
+    @Override
+    public int getOrder() {
+        return 0;
+    }
+}
@@ -0,0 +1,151 @@
+package at.willhaben.springboot2keyspaces.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.reactivestreams.Publisher;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.repository.core.RepositoryInformation;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Records the latency of every repository method tagged with keyspace, repository and method, the rows it read or
+ * wrote and its errors. The meters of a method are looked up once, an invocation only updates them. Reactive methods
+ * are timed from subscription until completion, streams from the call until they are closed and count the rows consumed
+ * until then.
+ */
+public class RepositoryMetricsInterceptor implements MethodInterceptor {
+
+    private static final String INVOCATIONS = "cassandra.keyspace.repository.invocations";
+    private static final String ROWS = "cassandra.keyspace.repository.rows";
+    private static final String ERRORS = "cassandra.keyspace.repository.errors";
+
+    private final MeterRegistry registry;
+
+    private final Tags repositoryTags;
+
+    private final Class<?> domainType;
+
+    private final Map<Method, MethodMeters> meters = new ConcurrentHashMap<>();
+
+    public RepositoryMetricsInterceptor(MeterRegistry registry, String keyspaceName, RepositoryInformation repositoryInformation) {
+        this.registry = registry;
+        this.repositoryTags = Tags.of("keyspace", keyspaceName, "repository", repositoryInformation.getRepositoryInterface().getSimpleName());
+        this.domainType = repositoryInformation.getDomainType();
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        MethodMeters methodMeters = meters.computeIfAbsent(invocation.getMethod(), this::createMeters);
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (Throwable e) {
+            methodMeters.error(start, e);
+            throw e;
+        }
+        if (methodMeters.write()) {
+            methodMeters.rows().increment(writtenRows(invocation.getArguments()));
+        }
+
+        if (result instanceof Mono<?> mono) {
+            return Mono.defer(() -> {
+                long subscribed = System.nanoTime();
+                return mono.doOnSuccess(value -> methodMeters.success(subscribed, methodMeters.write() ? 0 : readRows(value)))
+                        .doOnError(e -> methodMeters.error(subscribed, e));
+            });
+        }
+        // Any other publisher is adapted to a Flux, as long as the method may return one
+        if (result instanceof Publisher<?> publisher && invocation.getMethod().getReturnType().isAssignableFrom(Flux.class)) {
+            return Flux.defer(() -> {
+                long subscribed = System.nanoTime();
+                AtomicLong rows = new AtomicLong();
+                return Flux.from(publisher).doOnNext(value -> rows.incrementAndGet())
+                        .doOnComplete(() -> methodMeters.success(subscribed, methodMeters.write() ? 0 : rows.get()))
+                        .doOnError(e -> methodMeters.error(subscribed, e));
+            });
+        }
+        if (result instanceof Stream<?> stream) {
+            AtomicLong rows = new AtomicLong();
+            return stream.peek(value -> rows.incrementAndGet())
+                    .onClose(() -> methodMeters.success(start, methodMeters.write() ? 0 : rows.get()));
+        }
+        methodMeters.success(start, methodMeters.write() ? 0 : readRows(result));
+        return result;
+    }
+
+    private long readRows(Object result) {
+        if (result instanceof Slice<?> slice) {
+            return slice.getNumberOfElements();
+        }
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        return domainType.isInstance(result) ? 1 : 0;
+    }
+
+    private long writtenRows(Object[] arguments) {
+        if (arguments.length == 0) {
+            return 0;
+        }
+        if (arguments[0] instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (arguments[0] instanceof Iterable<?> iterable) {
+            long rows = 0;
+            for (Object ignored : iterable) {
+                rows++;
+            }
+            return rows;
+        }
+        // Single entities and ids, a publisher of entities is not counted
+        return arguments[0] instanceof Publisher<?> ? 0 : 1;
+    }
+
+    private MethodMeters createMeters(Method method) {
+        boolean write = isWrite(method.getName());
+        Tags tags = repositoryTags.and("method", method.getName());
+        return new MethodMeters(
+                Timer.builder(INVOCATIONS).tags(tags).tag("outcome", "success").publishPercentileHistogram().register(registry),
+                Timer.builder(INVOCATIONS).tags(tags).tag("outcome", "error").publishPercentileHistogram().register(registry),
+                Counter.builder(ROWS).tags(tags).tag("operation", write ? "write" : "read").register(registry),
+                registry, tags, write);
+    }
+
+    private static boolean isWrite(String methodName) {
+        return methodName.startsWith("save") || methodName.startsWith("insert") || methodName.startsWith("delete");
+    }
+
+    private record MethodMeters(Timer successes, Timer errors, Counter rows, MeterRegistry registry, Tags tags, boolean write) {
+
+        void success(long start, long readRows) {
+            successes.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (readRows > 0) {
+                rows.increment(readRows);
+            }
+        }
+
+        void error(long start, Throwable error) {
+            errors.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            // Errors are rare, their counter is looked up by exception type when it happens
+            registry.counter(ERRORS, tags.and("exception", error.getClass().getSimpleName())).increment();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package at.willhaben.springboot2keyspaces.multi;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Outcome of an operation in a single keyspace, either a value (which may be {@code null}, e.g. nothing found) or the
+ * error the keyspace failed with.
+ */
+public record KeyspaceResult<T>(String keyspaceName, T value, Throwable error) {
+
+    public static <T> KeyspaceResult<T> success(String keyspaceName, T value) {
+        return new KeyspaceResult<>(keyspaceName, value, null);
+    }
+
+    public static <T> KeyspaceResult<T> failure(String keyspaceName, Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return new KeyspaceResult<>(keyspaceName, null, cause);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -0,0 +1,93 @@
+package at.willhaben.springboot2keyspaces.multi;
+
+import at.willhaben.springboot2keyspaces.KeyspaceProperties;
+import at.willhaben.springboot2keyspaces.KeyspaceRegistrar;
+import org.springframework.data.cassandra.core.AsyncCassandraOperations;
+import org.springframework.data.cassandra.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Sends the same query to several keyspaces concurrently through their {@link AsyncCassandraOperations}, so the
+ * latency is bounded by the slowest keyspace instead of the sum of all keyspaces. Every keyspace answers within its
+ * {@link KeyspaceProperties.Keyspace#getQueryTimeout() query timeout}, keyspaces which fail or time out are reported
+ * as failed {@link KeyspaceResult results} next to the ones which succeeded.
+ */
+@Component
+public class MultiKeyspaceQueries {
+
+    private final Map<String, AsyncCassandraOperations> templates = new LinkedHashMap<>();
+
+    private final Map<String, Duration> timeouts = new LinkedHashMap<>();
+
+    public MultiKeyspaceQueries(KeyspaceProperties keyspaceProperties, Map<String, AsyncCassandraOperations> templates) {
+        keyspaceProperties.getKeyspaces().forEach((prefix, keyspace) -> {
+            this.templates.put(keyspace.getKeyspaceName(),
+                    templates.get(KeyspaceRegistrar.beanName(prefix, KeyspaceRegistrar.ASYNC_CASSANDRA_TEMPLATE)));
+            this.timeouts.put(keyspace.getKeyspaceName(), keyspace.getQueryTimeout());
+        });
+    }
+
+    /**
+     * Selects at most one entity per keyspace, in all configured keyspaces if no keyspace names are given.
+     */
+    public <T> List<KeyspaceResult<T>> selectOne(Query query, Class<T> entityClass, String... keyspaceNames) {
+        return query(template -> template.selectOne(query, entityClass), keyspaceNames);
+    }
+
+    /**
+     * Selects the entities per keyspace, in all configured keyspaces if no keyspace names are given.
+     */
+    public <T> List<KeyspaceResult<List<T>>> select(Query query, Class<T> entityClass, String... keyspaceNames) {
+        return query(template -> template.select(query, entityClass), keyspaceNames);
+    }
+
+    public <T> List<KeyspaceResult<T>> query(Function<AsyncCassandraOperations, CompletableFuture<T>> query, String... keyspaceNames) {
+        return queryAsync(query, keyspaceNames).join();
+    }
+
+    /**
+     * Runs the query in the given keyspaces, in all configured keyspaces if none are given. The returned future
+     * completes once every keyspace answered or timed out and never completes exceptionally, keyspaces which are not
+     * configured are reported as failed results.
+     */
+    public <T> CompletableFuture<List<KeyspaceResult<T>>> queryAsync(Function<AsyncCassandraOperations, CompletableFuture<T>> query,
+                                                                     String... keyspaceNames) {
+        Collection<String> targets = keyspaceNames.length == 0 ? templates.keySet() : Arrays.asList(keyspaceNames);
+        List<CompletableFuture<KeyspaceResult<T>>> results = new ArrayList<>(targets.size());
+        for (String keyspaceName : targets) {
+            results.add(queryKeyspace(keyspaceName, query));
+        }
+        return CompletableFuture.allOf(results.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> results.stream().map(CompletableFuture::join).toList());
+    }
+
+    private <T> CompletableFuture<KeyspaceResult<T>> queryKeyspace(String keyspaceName,
+                                                                   Function<AsyncCassandraOperations, CompletableFuture<T>> query) {
+        AsyncCassandraOperations template = templates.get(keyspaceName);
+        if (template == null) {
+            return CompletableFuture.completedFuture(
+                    KeyspaceResult.failure(keyspaceName, new IllegalArgumentException("Keyspace %s is not configured".formatted(keyspaceName))));
+        }
+        CompletableFuture<T> result;
+        try {
+            result = query.apply(template);
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(KeyspaceResult.failure(keyspaceName, e));
+        }
+        return result.orTimeout(timeouts.get(keyspaceName).toMillis(), TimeUnit.MILLISECONDS)
+                .handle((value, error) -> error == null
+                        ? KeyspaceResult.success(keyspaceName, value)
+                        : KeyspaceResult.failure(keyspaceName, error));
+    }
+}
@@ -0,0 +1,114 @@
+package at.willhaben.springboot2keyspaces.multi;
+
+import at.willhaben.springboot2keyspaces.KeyspaceProperties;
+import at.willhaben.springboot2keyspaces.KeyspaceRegistrar;
+import com.datastax.oss.driver.api.core.cql.BatchType;
+import org.springframework.data.cassandra.core.ReactiveCassandraOperations;
+import org.springframework.data.cassandra.core.mapping.CassandraMappingContext;
+import org.springframework.data.cassandra.core.mapping.CassandraPersistentEntity;
+import org.springframework.data.cassandra.core.mapping.CassandraPersistentProperty;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the same entities into several keyspaces concurrently, so a dual write takes one round trip instead of one per
+ * keyspace. Entities of the same partition are coalesced into an unlogged batch per keyspace, which Cassandra applies
+ * as a single mutation. Every keyspace reports its own {@link KeyspaceResult}, a failed keyspace does not stop the
+ * writes into the others.
+ */
+@Component
+public class MultiKeyspaceWriter {
+
+    private final Map<String, ReactiveCassandraOperations> templates = new LinkedHashMap<>();
+
+    private final Map<String, Duration> timeouts = new LinkedHashMap<>();
+
+    public MultiKeyspaceWriter(KeyspaceProperties keyspaceProperties, Map<String, ReactiveCassandraOperations> templates) {
+        keyspaceProperties.getKeyspaces().forEach((prefix, keyspace) -> {
+            this.templates.put(keyspace.getKeyspaceName(),
+                    templates.get(KeyspaceRegistrar.beanName(prefix, KeyspaceRegistrar.REACTIVE_CASSANDRA_TEMPLATE)));
+            this.timeouts.put(keyspace.getKeyspaceName(), keyspace.getQueryTimeout());
+        });
+    }
+
+    /**
+     * Inserts the entities into the given keyspaces, into all configured keyspaces if none are given.
+     */
+    public List<KeyspaceResult<Void>> insert(Collection<?> entities, String... keyspaceNames) {
+        return insertAsync(entities, keyspaceNames).join();
+    }
+
+    /**
+     * Inserts the entities into the given keyspaces, into all configured keyspaces if none are given. The returned
+     * future completes once every keyspace answered or timed out and never completes exceptionally, keyspaces which
+     * are not configured are reported as failed results.
+     */
+    public CompletableFuture<List<KeyspaceResult<Void>>> insertAsync(Collection<?> entities, String... keyspaceNames) {
+        Collection<String> targets = keyspaceNames.length == 0 ? templates.keySet() : Arrays.asList(keyspaceNames);
+        List<CompletableFuture<KeyspaceResult<Void>>> results = new ArrayList<>(targets.size());
+        for (String keyspaceName : targets) {
+            results.add(insertIntoKeyspace(keyspaceName, entities));
+        }
+        return CompletableFuture.allOf(results.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> results.stream().map(CompletableFuture::join).toList());
+    }
+
+    private CompletableFuture<KeyspaceResult<Void>> insertIntoKeyspace(String keyspaceName, Collection<?> entities) {
+        ReactiveCassandraOperations template = templates.get(keyspaceName);
+        if (template == null) {
+            return CompletableFuture.completedFuture(
+                    KeyspaceResult.failure(keyspaceName, new IllegalArgumentException("Keyspace %s is not configured".formatted(keyspaceName))));
+        }
+        List<CompletableFuture<?>> writes = new ArrayList<>();
+        try {
+            for (List<Object> partition : groupByPartition(template.getConverter().getMappingContext(), entities)) {
+                writes.add(partition.size() == 1
+                        ? template.insert(partition.get(0)).toFuture()
+                        : template.batchOps(BatchType.UNLOGGED).insert(partition).execute().toFuture());
+            }
+        } catch (RuntimeException e) {
+            writes.forEach(write -> write.cancel(false));
+            return CompletableFuture.completedFuture(KeyspaceResult.failure(keyspaceName, e));
+        }
+        return CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new))
+                .orTimeout(timeouts.get(keyspaceName).toMillis(), TimeUnit.MILLISECONDS)
+                .handle((ignored, error) -> error == null
+                        ? KeyspaceResult.success(keyspaceName, null)
+                        : KeyspaceResult.failure(keyspaceName, error));
+    }
+
+    private static Collection<List<Object>> groupByPartition(CassandraMappingContext mappingContext, Collection<?> entities) {
+        Map<List<Object>, List<Object>> partitions = new LinkedHashMap<>();
+        for (Object entity : entities) {
+            CassandraPersistentEntity<?> persistentEntity = mappingContext.getRequiredPersistentEntity(entity.getClass());
+            List<Object> partitionKey = new ArrayList<>();
+            partitionKey.add(persistentEntity.getTableName());
+            addPartitionKey(mappingContext, persistentEntity, entity, partitionKey);
+            partitions.computeIfAbsent(partitionKey, key -> new ArrayList<>()).add(entity);
+        }
+        return partitions.values();
+    }
+
+    private static void addPartitionKey(CassandraMappingContext mappingContext, CassandraPersistentEntity<?> persistentEntity,
+                                        Object entity, List<Object> partitionKey) {
+        PersistentPropertyAccessor<?> accessor = persistentEntity.getPropertyAccessor(entity);
+        for (CassandraPersistentProperty property : persistentEntity) {
+            if (property.isCompositePrimaryKey()) {
+                Object primaryKey = accessor.getProperty(property);
+                addPartitionKey(mappingContext, mappingContext.getRequiredPersistentEntity(property), primaryKey, partitionKey);
+            } else if (property.isPartitionKeyColumn()) {
+                partitionKey.add(accessor.getProperty(property));
+            }
+        }
+    }
+}
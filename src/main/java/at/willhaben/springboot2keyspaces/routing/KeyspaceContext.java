@@ -0,0 +1,44 @@
+package at.willhaben.springboot2keyspaces.routing;
+
+import lombok.experimental.UtilityClass;
+
+import java.util.function.Supplier;
+
+/**
+ * Binds the keyspace used by routing repositories to the current call. Bindings can be nested, the previous keyspace
+ * is restored when the inner call returns.
+ */
+@UtilityClass
+public class KeyspaceContext {
+
+    private static final ThreadLocal<String> KEYSPACE = new ThreadLocal<>();
+
+    public static void run(String keyspaceName, Runnable action) {
+        call(keyspaceName, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public static <T> T call(String keyspaceName, Supplier<T> action) {
+        String previous = KEYSPACE.get();
+        KEYSPACE.set(keyspaceName);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                KEYSPACE.remove();
+            } else {
+                KEYSPACE.set(previous);
+            }
+        }
+    }
+
+    public static String getKeyspace() {
+        String keyspaceName = KEYSPACE.get();
+        if (keyspaceName == null) {
+            throw new IllegalStateException("No keyspace bound to the current call, use KeyspaceContext.run or KeyspaceContext.call");
+        }
+        return keyspaceName;
+    }
+}
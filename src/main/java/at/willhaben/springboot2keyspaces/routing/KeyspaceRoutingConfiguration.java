@@ -0,0 +1,16 @@
+package at.willhaben.springboot2keyspaces.routing;
+
+import at.willhaben.springboot2keyspaces.global.CRepository;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+@Configuration
+public class KeyspaceRoutingConfiguration {
+
+    @Bean
+    @Primary
+    public CRepository cRepository(KeyspaceTemplateCache keyspaceTemplateCache) {
+        return KeyspaceRoutingRepository.create(CRepository.class, keyspaceTemplateCache);
+    }
+}
@@ -0,0 +1,54 @@
+package at.willhaben.springboot2keyspaces.routing;
+
+import lombok.RequiredArgsConstructor;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.stream.Stream;
+
+/**
+ * Single repository instance which delegates every call to the repository of the keyspace bound in
+ * {@link KeyspaceContext}, so a repository interface of the shared entities does not need a sub interface per keyspace.
+ */
+@RequiredArgsConstructor
+public class KeyspaceRoutingRepository implements InvocationHandler {
+
+    private final Class<?> repositoryInterface;
+
+    private final KeyspaceTemplateCache keyspaceTemplateCache;
+
+    public static <R> R create(Class<R> repositoryInterface, KeyspaceTemplateCache keyspaceTemplateCache) {
+        return repositoryInterface.cast(Proxy.newProxyInstance(repositoryInterface.getClassLoader(),
+                new Class<?>[]{repositoryInterface}, new KeyspaceRoutingRepository(repositoryInterface, keyspaceTemplateCache)));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return switch (method.getName()) {
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                default -> "Keyspace routing " + repositoryInterface.getName();
+            };
+        }
+
+        KeyspaceTemplateCache.Lease lease = keyspaceTemplateCache.acquire(KeyspaceContext.getKeyspace());
+        try {
+            Object result = method.invoke(lease.getRepository(repositoryInterface), args);
+            // Streams read lazily, so the template is released when the stream is closed
+            if (result instanceof Stream<?> stream) {
+                return stream.onClose(lease::close);
+            }
+            lease.close();
+            return result;
+        } catch (InvocationTargetException e) {
+            lease.close();
+            throw e.getTargetException();
+        } catch (RuntimeException | Error e) {
+            lease.close();
+            throw e;
+        }
+    }
+}
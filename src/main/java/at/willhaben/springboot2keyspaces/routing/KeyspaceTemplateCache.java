@@ -0,0 +1,207 @@
+package at.willhaben.springboot2keyspaces.routing;
+
+import at.willhaben.springboot2keyspaces.KeyspaceProperties;
+import at.willhaben.springboot2keyspaces.KeyspaceRegistrar;
+import at.willhaben.springboot2keyspaces.KeyspaceServiceFactory;
+import at.willhaben.springboot2keyspaces.KeyspaceSessions;
+import at.willhaben.springboot2keyspaces.cache.KeyspaceNearCaches;
+import at.willhaben.springboot2keyspaces.metrics.KeyspaceRepositoryMetrics;
+import at.willhaben.springboot2keyspaces.streaming.SimpleStreamingCassandraRepository;
+import com.datastax.oss.driver.api.core.CqlSession;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.cassandra.core.CassandraOperations;
+import org.springframework.data.cassandra.core.convert.CassandraConverter;
+import org.springframework.data.cassandra.core.convert.MappingCassandraConverter;
+import org.springframework.data.cassandra.core.cql.session.DefaultSessionFactory;
+import org.springframework.data.cassandra.core.mapping.CassandraMappingContext;
+import org.springframework.data.mapping.model.EntityInstantiators;
+import org.springframework.data.cassandra.repository.support.CassandraRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryFactoryCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Templates and repositories by keyspace name. Configured keyspaces use their registered templates, any other keyspace
+ * (e.g. per tenant) gets a template for the shared entity packages which is created on first use and kept in a
+ * bounded LRU cache. Evicted keyspaces release their session once the last lease of their template is closed.
+ */
+@Component
+public class KeyspaceTemplateCache implements DisposableBean {
+
+    private final KeyspaceSessions keyspaceSessions;
+
+    private final CassandraMappingContext sharedMappingContext;
+
+    private final EntityInstantiators sharedEntityInstantiators;
+
+    private final int maxCachedKeyspaces;
+
+    private final int pageSize;
+
+    private final boolean recordMappers;
+
+    private final KeyspaceRepositoryMetrics repositoryMetrics;
+
+    private final KeyspaceNearCaches nearCaches;
+
+    private final Map<String, KeyspaceTemplate> configuredKeyspaces = new HashMap<>();
+
+    private final LinkedHashMap<String, KeyspaceTemplate> cachedKeyspaces = new LinkedHashMap<>(16, 0.75f, true);
+
+    public KeyspaceTemplateCache(KeyspaceProperties keyspaceProperties,
+                                 Map<String, CassandraOperations> templates,
+                                 KeyspaceSessions keyspaceSessions,
+                                 @Qualifier("sharedMappingContext") CassandraMappingContext sharedMappingContext,
+                                 @Qualifier("sharedEntityInstantiators") EntityInstantiators sharedEntityInstantiators,
+                                 KeyspaceRepositoryMetrics repositoryMetrics,
+                                 KeyspaceNearCaches nearCaches) {
+        this.keyspaceSessions = keyspaceSessions;
+        this.sharedMappingContext = sharedMappingContext;
+        this.sharedEntityInstantiators = sharedEntityInstantiators;
+        this.maxCachedKeyspaces = keyspaceProperties.getMaxCachedKeyspaces();
+        this.pageSize = keyspaceProperties.resolveDriver().getPageSize();
+        this.recordMappers = keyspaceProperties.isRecordMappers();
+        this.repositoryMetrics = repositoryMetrics;
+        this.nearCaches = nearCaches;
+        keyspaceProperties.getKeyspaces().forEach((prefix, keyspace) -> configuredKeyspaces.put(keyspace.getKeyspaceName(),
+                new KeyspaceTemplate(templates.get(KeyspaceRegistrar.beanName(prefix, KeyspaceRegistrar.CASSANDRA_TEMPLATE)), null,
+                        repositoryCustomizers(keyspace.getKeyspaceName()))));
+    }
+
+    /**
+     * Leases the template of the keyspace, it stays open until the lease is closed even if it is evicted meanwhile.
+     */
+    public Lease acquire(String keyspaceName) {
+        KeyspaceTemplate keyspaceTemplate = configuredKeyspaces.get(keyspaceName);
+        if (keyspaceTemplate != null) {
+            return new Lease(keyspaceTemplate);
+        }
+        synchronized (cachedKeyspaces) {
+            keyspaceTemplate = cachedKeyspaces.get(keyspaceName);
+            if (keyspaceTemplate != null) {
+                return lease(keyspaceTemplate);
+            }
+        }
+
+        // Opening a session may take a while, so it is done outside the lock and a concurrently created one wins
+        KeyspaceTemplate created = createKeyspaceTemplate(keyspaceName);
+        KeyspaceTemplate evicted = null;
+        Lease lease;
+        synchronized (cachedKeyspaces) {
+            keyspaceTemplate = cachedKeyspaces.putIfAbsent(keyspaceName, created);
+            if (keyspaceTemplate == null && cachedKeyspaces.size() > maxCachedKeyspaces) {
+                var eldest = cachedKeyspaces.entrySet().iterator().next();
+                evicted = eldest.getValue();
+                cachedKeyspaces.remove(eldest.getKey());
+            }
+            lease = lease(keyspaceTemplate != null ? keyspaceTemplate : created);
+        }
+        if (keyspaceTemplate != null) {
+            release(created);
+        }
+        if (evicted != null) {
+            release(evicted);
+        }
+        return lease;
+    }
+
+    /**
+     * Must be called under the cache lock, so a template is not leased once the cache released it.
+     */
+    private Lease lease(KeyspaceTemplate keyspaceTemplate) {
+        keyspaceTemplate.references().incrementAndGet();
+        return new Lease(keyspaceTemplate);
+    }
+
+    private KeyspaceTemplate createKeyspaceTemplate(String keyspaceName) {
+        CqlSession session = keyspaceSessions.openSession(keyspaceName);
+        CassandraConverter converter = KeyspaceServiceFactory.converter(session, sharedMappingContext, sharedEntityInstantiators, recordMappers);
+        ((MappingCassandraConverter) converter).afterPropertiesSet();
+        return new KeyspaceTemplate(KeyspaceServiceFactory.cassandraTemplate(new DefaultSessionFactory(session), converter, pageSize), session,
+                repositoryCustomizers(keyspaceName));
+    }
+
+    /**
+     * Configured keyspaces share the near cache with their registered repositories, so writes through either invalidate it.
+     */
+    private List<RepositoryFactoryCustomizer> repositoryCustomizers(String keyspaceName) {
+        return List.of(repositoryMetrics.forKeyspace(keyspaceName), nearCaches.forKeyspace(keyspaceName));
+    }
+
+    /**
+     * Drops one reference, the cache holds one itself and every lease another, so the session is closed by whoever
+     * releases last, like the idle close of a lazy session waits for its in-flight requests.
+     */
+    private void release(KeyspaceTemplate keyspaceTemplate) {
+        if (keyspaceTemplate.session() != null && keyspaceTemplate.references().decrementAndGet() == 0) {
+            keyspaceSessions.closeSession(keyspaceTemplate.session());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        List<KeyspaceTemplate> released;
+        synchronized (cachedKeyspaces) {
+            released = List.copyOf(cachedKeyspaces.values());
+            cachedKeyspaces.clear();
+        }
+        released.forEach(this::release);
+    }
+
+    /**
+     * Template of a keyspace in use, closing it releases the session of an evicted keyspace once no other lease uses it.
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final KeyspaceTemplate keyspaceTemplate;
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Lease(KeyspaceTemplate keyspaceTemplate) {
+            this.keyspaceTemplate = keyspaceTemplate;
+        }
+
+        public CassandraOperations getTemplate() {
+            return keyspaceTemplate.template();
+        }
+
+        public <R> R getRepository(Class<R> repositoryInterface) {
+            return keyspaceTemplate.getRepository(repositoryInterface);
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                release(keyspaceTemplate);
+            }
+        }
+    }
+
+    private record KeyspaceTemplate(CassandraOperations template, CqlSession session, List<RepositoryFactoryCustomizer> customizers,
+                                    Map<Class<?>, Object> repositories, AtomicInteger references) {
+
+        KeyspaceTemplate(CassandraOperations template, CqlSession session, List<RepositoryFactoryCustomizer> customizers) {
+            this(template, session, customizers, new ConcurrentHashMap<>(), new AtomicInteger(1));
+        }
+
+        <R> R getRepository(Class<R> repositoryInterface) {
+            return repositoryInterface.cast(repositories.computeIfAbsent(repositoryInterface,
+                    type -> repositoryFactory().getRepository(type)));
+        }
+
+        private CassandraRepositoryFactory repositoryFactory() {
+            CassandraRepositoryFactory repositoryFactory = new CassandraRepositoryFactory(template);
+            repositoryFactory.setRepositoryBaseClass(SimpleStreamingCassandraRepository.class);
+            customizers.forEach(customizer -> customizer.customize(repositoryFactory));
+            return repositoryFactory;
+        }
+    }
+}
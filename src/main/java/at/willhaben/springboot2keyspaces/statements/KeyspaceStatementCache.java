@@ -0,0 +1,85 @@
+package at.willhaben.springboot2keyspaces.statements;
+
+import at.willhaben.springboot2keyspaces.KeyspaceProperties;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Statements prepared by any keyspace, shared with all other keyspaces. The CQL of the repositories does not name the
+ * keyspace, so keyspaces holding the same tables, like those of {@code C}, run the same statements. Prepared statements
+ * are bound to their keyspace by Cassandra though, so instead of sharing the prepared statement itself, a statement
+ * prepared by one keyspace is prepared in the background by every other one, and sessions opened later, e.g. of tenant
+ * keyspaces, prepare all known statements right away. Keyspaces lacking the table of a statement skip it.
+ */
+@Component
+public class KeyspaceStatementCache {
+
+    private final int maxShared;
+
+    private final Map<String, SimpleStatement> statements = new ConcurrentHashMap<>();
+
+    private final Set<StatementSharingSession> sessions = new CopyOnWriteArraySet<>();
+
+    public KeyspaceStatementCache(KeyspaceProperties keyspaceProperties) {
+        this.maxShared = keyspaceProperties.getPreparedStatements().getMaxShared();
+    }
+
+    /**
+     * Decorates the session of the keyspace, so it shares the statements it prepares and prepares those of the other keyspaces.
+     */
+    public CqlSession register(String keyspaceName, CqlSession session) {
+        StatementSharingSession sharingSession = new StatementSharingSession(session, keyspaceName, this);
+        sessions.add(sharingSession);
+        statements.values().forEach(statement -> prepareQuietly(sharingSession, statement));
+        return sharingSession;
+    }
+
+    public void unregister(CqlSession session) {
+        if (session instanceof StatementSharingSession sharingSession) {
+            sessions.remove(sharingSession);
+        }
+    }
+
+    /**
+     * Prepares the statements in the given session and completes once all of them are prepared, statements which
+     * cannot be prepared are skipped.
+     */
+    public CompletableFuture<Void> warmUp(CqlSession session, List<SimpleStatement> statements) {
+        return CompletableFuture.allOf(statements.stream()
+                .map(statement -> session.prepareAsync(statement).toCompletableFuture().exceptionally(e -> null))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    public Collection<SimpleStatement> getStatements() {
+        return Collections.unmodifiableCollection(statements.values());
+    }
+
+    void prepared(String keyspaceName, SimpleStatement statement) {
+        // Statements qualified with their keyspace are not shared
+        if (statement.getKeyspace() != null || statements.containsKey(statement.getQuery()) || statements.size() >= maxShared) {
+            return;
+        }
+        SimpleStatement shared = statement.setPositionalValues(List.of()).setNamedValues(Map.of());
+        if (statements.putIfAbsent(statement.getQuery(), shared) == null) {
+            sessions.forEach(session -> {
+                if (!session.getKeyspaceName().equals(keyspaceName)) {
+                    prepareQuietly(session, shared);
+                }
+            });
+        }
+    }
+
+    private static void prepareQuietly(StatementSharingSession session, SimpleStatement statement) {
+        session.prepareShared(statement).exceptionally(e -> null);
+    }
+}
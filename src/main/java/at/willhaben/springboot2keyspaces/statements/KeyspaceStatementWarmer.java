@@ -0,0 +1,80 @@
+package at.willhaben.springboot2keyspaces.statements;
+
+import at.willhaben.springboot2keyspaces.KeyspaceProperties;
+import at.willhaben.springboot2keyspaces.KeyspaceRegistrar;
+import at.willhaben.springboot2keyspaces.KeyspaceRepositories;
+import at.willhaben.springboot2keyspaces.LazyKeyspaceSession;
+import at.willhaben.springboot2keyspaces.KeyspaceSessions;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.data.cassandra.core.convert.CassandraConverter;
+import org.springframework.data.mapping.model.EntityInstantiators;
+import org.springframework.data.repository.core.support.RepositoryFactoryInformation;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static at.willhaben.springboot2keyspaces.KeyspaceRegistrar.beanName;
+
+/**
+ * Prepares the CRUD statements and derived queries of the repositories registered for every keyspace once all beans
+ * are created, so the application is only ready after the first request of each keyspace no longer has to prepare
+ * its statement. The keyspaces are warmed up concurrently. Lazy sessions which are not open yet are skipped, they
+ * prepare the statements shared by the other keyspaces once they are opened.
+ */
+@Component
+public class KeyspaceStatementWarmer implements SmartInitializingSingleton, BeanFactoryAware {
+
+    private final KeyspaceProperties keyspaceProperties;
+
+    private final KeyspaceStatementCache statementCache;
+
+    private ConfigurableListableBeanFactory beanFactory;
+
+    public KeyspaceStatementWarmer(KeyspaceProperties keyspaceProperties, KeyspaceStatementCache statementCache) {
+        this.keyspaceProperties = keyspaceProperties;
+        this.statementCache = statementCache;
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) {
+        this.beanFactory = (ConfigurableListableBeanFactory) beanFactory;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!keyspaceProperties.getPreparedStatements().isWarmUp()) {
+            return;
+        }
+        EntityInstantiators instantiators = beanFactory.getBean(
+                beanName(KeyspaceSessions.SHARED_PREFIX, KeyspaceRegistrar.ENTITY_INSTANTIATORS), EntityInstantiators.class);
+        List<CompletableFuture<Void>> warmUps = new ArrayList<>();
+        keyspaceProperties.getKeyspaces().forEach((prefix, keyspace) -> {
+            CqlSession session = beanFactory.getBean(beanName(prefix, KeyspaceRegistrar.SESSION), CqlSession.class);
+            if (session instanceof LazyKeyspaceSession lazySession && !lazySession.isOpen()) {
+                return;
+            }
+            RepositoryStatements repositoryStatements = new RepositoryStatements(
+                    beanFactory.getBean(beanName(prefix, KeyspaceRegistrar.CONVERTER), CassandraConverter.class), instantiators);
+            List<SimpleStatement> statements = new ArrayList<>();
+            repositories(keyspace.getKeyspaceName()).forEach(repository -> statements.addAll(repositoryStatements.of(repository)));
+            warmUps.add(statementCache.warmUp(session, statements));
+        });
+        CompletableFuture.allOf(warmUps.toArray(CompletableFuture[]::new)).join();
+    }
+
+    private List<RepositoryFactoryInformation<?, ?>> repositories(String keyspaceName) {
+        List<RepositoryFactoryInformation<?, ?>> repositories = new ArrayList<>();
+        KeyspaceRepositories keyspaceRepositories = beanFactory.getBean(KeyspaceRepositories.BEAN_NAME, KeyspaceRepositories.class);
+        for (String beanName : keyspaceRepositories.getRepositoryBeanNames(keyspaceName)) {
+            repositories.add(beanFactory.getBean(BeanFactory.FACTORY_BEAN_PREFIX + beanName, RepositoryFactoryInformation.class));
+        }
+        return repositories;
+    }
+}
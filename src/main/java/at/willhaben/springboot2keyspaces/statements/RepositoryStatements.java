@@ -0,0 +1,152 @@
+package at.willhaben.springboot2keyspaces.statements;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import org.springframework.data.cassandra.core.InsertOptions;
+import org.springframework.data.cassandra.core.StatementFactory;
+import org.springframework.data.cassandra.core.convert.CassandraConverter;
+import org.springframework.data.cassandra.core.mapping.BasicMapId;
+import org.springframework.data.cassandra.core.mapping.CassandraPersistentEntity;
+import org.springframework.data.cassandra.core.mapping.CassandraPersistentProperty;
+import org.springframework.data.cassandra.core.mapping.MapId;
+import org.springframework.data.cassandra.core.query.Criteria;
+import org.springframework.data.cassandra.core.query.CriteriaDefinition;
+import org.springframework.data.cassandra.core.query.Query;
+import org.springframework.data.cassandra.repository.query.CassandraQueryMethod;
+import org.springframework.data.mapping.Parameter;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mapping.model.EntityInstantiators;
+import org.springframework.data.mapping.model.ParameterValueProvider;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.core.support.RepositoryFactoryInformation;
+import org.springframework.data.repository.query.QueryMethod;
+import org.springframework.data.repository.query.parser.Part;
+import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.util.ClassUtils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static java.util.Map.entry;
+
+/**
+ * The CRUD statements and derived queries a repository runs, built with the same {@link StatementFactory} as the
+ * templates, so they render the same CQL. Values are placeholders, only the statements are prepared. Annotated queries,
+ * projections and derived queries with other conditions than equality are left out, as are entities with properties
+ * of a type without a placeholder.
+ */
+class RepositoryStatements {
+
+    private static final Map<Class<?>, Object> PLACEHOLDERS = Map.ofEntries(
+            entry(String.class, ""), entry(UUID.class, new UUID(0, 0)), entry(Boolean.class, false),
+            entry(Byte.class, (byte) 0), entry(Short.class, (short) 0), entry(Integer.class, 0), entry(Long.class, 0L),
+            entry(Float.class, 0f), entry(Double.class, 0d), entry(BigInteger.class, BigInteger.ZERO),
+            entry(BigDecimal.class, BigDecimal.ZERO), entry(Instant.class, Instant.EPOCH), entry(LocalDate.class, LocalDate.EPOCH),
+            entry(LocalTime.class, LocalTime.MIDNIGHT));
+
+    private final CassandraConverter converter;
+
+    private final StatementFactory statementFactory;
+
+    private final EntityInstantiators instantiators;
+
+    RepositoryStatements(CassandraConverter converter, EntityInstantiators instantiators) {
+        this.converter = converter;
+        this.statementFactory = new StatementFactory(converter);
+        this.instantiators = instantiators;
+    }
+
+    List<SimpleStatement> of(RepositoryFactoryInformation<?, ?> repository) {
+        RepositoryInformation repositoryInformation = repository.getRepositoryInformation();
+        CassandraPersistentEntity<?> entity = converter.getMappingContext().getRequiredPersistentEntity(repositoryInformation.getDomainType());
+        CqlIdentifier tableName = entity.getTableName();
+
+        List<SimpleStatement> statements = new ArrayList<>();
+        statements.add(statementFactory.select(Query.empty(), entity, tableName).build());
+        placeholderId(entity, repositoryInformation.getIdType()).ifPresent(id -> {
+            statements.add(statementFactory.selectOneById(id, entity, tableName).build());
+            statements.add(statementFactory.deleteById(id, entity, tableName).build());
+        });
+        placeholderEntity(entity).ifPresent(placeholder ->
+                statements.add(statementFactory.insert(placeholder, InsertOptions.empty(), entity, tableName).build()));
+        for (QueryMethod queryMethod : repository.getQueryMethods()) {
+            derivedQuery(queryMethod, entity).ifPresent(statements::add);
+        }
+        return statements;
+    }
+
+    private Optional<SimpleStatement> derivedQuery(QueryMethod queryMethod, CassandraPersistentEntity<?> entity) {
+        if (queryMethod instanceof CassandraQueryMethod cassandraQueryMethod && cassandraQueryMethod.hasAnnotatedQuery()
+                || queryMethod.getParameters().hasSpecialParameter() || queryMethod.getResultProcessor().getReturnedType().isProjecting()) {
+            return Optional.empty();
+        }
+        PartTree tree = new PartTree(queryMethod.getName(), entity.getType());
+        if (tree.isDelete() || tree.isCountProjection() || tree.isExistsProjection() || tree.isLimiting() || tree.isDistinct()
+                || tree.getSort().isSorted() || tree.stream().count() != 1) {
+            return Optional.empty();
+        }
+        List<CriteriaDefinition> criteria = new ArrayList<>();
+        for (Part part : tree.getParts()) {
+            Object placeholder = placeholder(part.getProperty().getType());
+            if (part.getType() != Part.Type.SIMPLE_PROPERTY || part.getProperty().hasNext() || placeholder == null) {
+                return Optional.empty();
+            }
+            criteria.add(Criteria.where(part.getProperty().getSegment()).is(placeholder));
+        }
+        return Optional.of(statementFactory.select(Query.query(criteria), entity, entity.getTableName()).build());
+    }
+
+    private static Optional<Object> placeholderId(CassandraPersistentEntity<?> entity, Class<?> idType) {
+        if (!MapId.class.isAssignableFrom(idType)) {
+            CassandraPersistentProperty idProperty = entity.getIdProperty();
+            return idProperty == null || idProperty.isCompositePrimaryKey()
+                    ? Optional.empty()
+                    : Optional.ofNullable(placeholder(idProperty.getType()));
+        }
+        MapId id = BasicMapId.id();
+        for (CassandraPersistentProperty property : entity) {
+            if (property.isPrimaryKeyColumn()) {
+                Object placeholder = placeholder(property.getType());
+                if (placeholder == null) {
+                    return Optional.empty();
+                }
+                id.with(property.getName(), placeholder);
+            }
+        }
+        return Optional.of(id);
+    }
+
+    private Optional<Object> placeholderEntity(CassandraPersistentEntity<?> entity) {
+        for (CassandraPersistentProperty property : entity) {
+            if (placeholder(property.getType()) == null) {
+                return Optional.empty();
+            }
+        }
+        Object instance = instantiators.getInstantiatorFor(entity).createInstance(entity, new ParameterValueProvider<CassandraPersistentProperty>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T getParameterValue(Parameter<T, CassandraPersistentProperty> parameter) {
+                return (T) placeholder(parameter.getType().getType());
+            }
+        });
+        PersistentPropertyAccessor<Object> accessor = entity.getPropertyAccessor(instance);
+        for (CassandraPersistentProperty property : entity) {
+            if (!entity.isCreatorArgument(property)) {
+                accessor.setProperty(property, placeholder(property.getType()));
+            }
+        }
+        return Optional.of(accessor.getBean());
+    }
+
+    private static Object placeholder(Class<?> type) {
+        return PLACEHOLDERS.get(ClassUtils.resolvePrimitiveIfNecessary(type));
+    }
+}
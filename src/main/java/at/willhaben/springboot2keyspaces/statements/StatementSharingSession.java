@@ -0,0 +1,58 @@
+package at.willhaben.springboot2keyspaces.statements;
+
+import at.willhaben.springboot2keyspaces.DelegatingCqlSession;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Session of a keyspace which reports every statement it prepares to the {@link KeyspaceStatementCache}, so the other
+ * keyspaces prepare it as well.
+ */
+public class StatementSharingSession extends DelegatingCqlSession {
+
+    private final String keyspaceName;
+
+    private final KeyspaceStatementCache statementCache;
+
+    StatementSharingSession(CqlSession delegate, String keyspaceName, KeyspaceStatementCache statementCache) {
+        super(delegate);
+        this.keyspaceName = keyspaceName;
+        this.statementCache = statementCache;
+    }
+
+    @Override
+    public PreparedStatement prepare(SimpleStatement statement) {
+        PreparedStatement prepared = delegate.prepare(statement);
+        statementCache.prepared(keyspaceName, statement);
+        return prepared;
+    }
+
+    @Override
+    public PreparedStatement prepare(String query) {
+        return prepare(SimpleStatement.newInstance(query));
+    }
+
+    @Override
+    public CompletionStage<PreparedStatement> prepareAsync(SimpleStatement statement) {
+        return delegate.prepareAsync(statement).thenApply(prepared -> {
+            statementCache.prepared(keyspaceName, statement);
+            return prepared;
+        });
+    }
+
+    @Override
+    public CompletionStage<PreparedStatement> prepareAsync(String query) {
+        return prepareAsync(SimpleStatement.newInstance(query));
+    }
+
+    String getKeyspaceName() {
+        return keyspaceName;
+    }
+
+    CompletionStage<PreparedStatement> prepareShared(SimpleStatement statement) {
+        return delegate.prepareAsync(statement);
+    }
+}
@@ -0,0 +1,86 @@
+package at.willhaben.springboot2keyspaces.streaming;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token ranges a {@link KeyspaceCopier} has copied completely, a copy resumed with the same checkpoint skips them.
+ * Ranges are identified by their formatted start and end token, so a checkpoint is only valid for the same table,
+ * parallelism and token ring.
+ */
+public interface CopyCheckpoint {
+
+    boolean isCompleted(String range);
+
+    void completed(String range);
+
+    /**
+     * Checkpoint which only lives as long as the process, e.g. for a single run.
+     */
+    static CopyCheckpoint inMemory() {
+        Set<String> completed = ConcurrentHashMap.newKeySet();
+        return new CopyCheckpoint() {
+            @Override
+            public boolean isCompleted(String range) {
+                return completed.contains(range);
+            }
+
+            @Override
+            public void completed(String range) {
+                completed.add(range);
+            }
+        };
+    }
+
+    /**
+     * Checkpoint which appends a line per completed range to the file, ranges of an existing file are read first.
+     */
+    static CopyCheckpoint file(Path path) {
+        return new FileCheckpoint(path);
+    }
+
+    final class FileCheckpoint implements CopyCheckpoint {
+
+        private final Path path;
+
+        private final Set<String> completed = ConcurrentHashMap.newKeySet();
+
+        private final Lock lock = new ReentrantLock();
+
+        private FileCheckpoint(Path path) {
+            this.path = path;
+            try {
+                if (Files.exists(path)) {
+                    Files.readAllLines(path).stream().filter(line -> !line.isBlank()).forEach(completed::add);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Checkpoint %s cannot be read".formatted(path), e);
+            }
+        }
+
+        @Override
+        public boolean isCompleted(String range) {
+            return completed.contains(range);
+        }
+
+        @Override
+        public void completed(String range) {
+            lock.lock();
+            try {
+                Files.writeString(path, range + System.lineSeparator(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                completed.add(range);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Checkpoint %s cannot be written".formatted(path), e);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
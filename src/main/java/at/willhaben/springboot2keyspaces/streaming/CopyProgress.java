@@ -0,0 +1,23 @@
+package at.willhaben.springboot2keyspaces.streaming;
+
+import java.time.Duration;
+
+/**
+ * Progress of a {@link KeyspaceCopier} run, reported after every copied token range and returned once all are copied.
+ *
+ * @param ranges          token ranges of the source table
+ * @param completedRanges ranges copied by this run
+ * @param skippedRanges   ranges skipped since the checkpoint recorded them as copied before
+ * @param rows            rows written into the target keyspace by this run
+ * @param elapsed         time since this run started
+ */
+public record CopyProgress(int ranges, int completedRanges, int skippedRanges, long rows, Duration elapsed) {
+
+    public boolean isDone() {
+        return completedRanges + skippedRanges == ranges;
+    }
+
+    public double rowsPerSecond() {
+        return elapsed.isZero() ? 0 : rows * 1_000_000_000d / elapsed.toNanos();
+    }
+}
@@ -0,0 +1,187 @@
+package at.willhaben.springboot2keyspaces.streaming;
+
+import at.willhaben.springboot2keyspaces.KeyspaceProperties;
+import at.willhaben.springboot2keyspaces.KeyspaceRegistrar;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import org.springframework.data.cassandra.core.AsyncCassandraOperations;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Copies the table of an entity from one configured keyspace into another, e.g. shared entities when a tenant moves.
+ * The source table is read in token ranges by parallel workers page by page, like {@link TokenRangeScanner}, and the
+ * entities are inserted through the async template of the target keyspace with at most {@code maxConcurrentWrites}
+ * writes in flight, which blocks the readers once reached. A range is recorded in the {@link CopyCheckpoint} once all
+ * its rows are written, a resumed copy skips the recorded ranges. Inserts are idempotent, so a range which was
+ * interrupted halfway is copied again from its start.
+ */
+@Component
+public class KeyspaceCopier {
+
+    private static final int DEFAULT_MAX_CONCURRENT_WRITES = 256;
+
+    private final TokenRangeScanner scanner;
+
+    private final Map<String, AsyncCassandraOperations> templates = new HashMap<>();
+
+    public KeyspaceCopier(KeyspaceProperties keyspaceProperties, TokenRangeScanner scanner, Map<String, AsyncCassandraOperations> templates) {
+        this.scanner = scanner;
+        keyspaceProperties.getKeyspaces().forEach((prefix, keyspace) -> this.templates.put(keyspace.getKeyspaceName(),
+                templates.get(KeyspaceRegistrar.beanName(prefix, KeyspaceRegistrar.ASYNC_CASSANDRA_TEMPLATE))));
+    }
+
+    /**
+     * Copies the table of the entity with one reader per available processor.
+     */
+    public <T> CopyProgress copy(Class<T> entityClass, String sourceKeyspace, String targetKeyspace, CopyCheckpoint checkpoint) {
+        return copy(entityClass, sourceKeyspace, targetKeyspace, Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_CONCURRENT_WRITES,
+                checkpoint, progress -> {
+                });
+    }
+
+    /**
+     * Copies the table of the entity, the checkpoint and the listener are called on the copy threads after every
+     * copied token range. The first failed read or write stops the copy and is thrown once the writes in flight
+     * completed, ranges copied until then stay recorded in the checkpoint.
+     */
+    public <T> CopyProgress copy(Class<T> entityClass, String sourceKeyspace, String targetKeyspace, int parallelism,
+                                 int maxConcurrentWrites, CopyCheckpoint checkpoint, Consumer<? super CopyProgress> listener) {
+        AsyncCassandraOperations target = templates.get(targetKeyspace);
+        if (target == null) {
+            throw new IllegalArgumentException("Keyspace %s is not configured".formatted(targetKeyspace));
+        }
+        TokenRangeScanner.Target source = scanner.target(sourceKeyspace);
+        List<TokenRangeScanner.RangeStatement> ranges = scanner.rangeStatements(sourceKeyspace, entityClass, parallelism);
+        Progress progress = new Progress(ranges.size());
+        Copy<T> copy = new Copy<>(source, target, entityClass, new Semaphore(maxConcurrentWrites), progress);
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, new CustomizableThreadFactory("keyspace-copy-"));
+        try {
+            List<CompletableFuture<Void>> copies = new ArrayList<>();
+            for (TokenRangeScanner.RangeStatement range : ranges) {
+                if (checkpoint.isCompleted(range.range())) {
+                    progress.skippedRanges.incrementAndGet();
+                    continue;
+                }
+                copies.add(CompletableFuture.supplyAsync(() -> copy.copyRange(range.statement()), executor)
+                        .thenCompose(Function.identity())
+                        // The last write of a range completes on a driver I/O thread, which must not block on the checkpoint
+                        .thenAcceptAsync(copied -> {
+                            if (copied) {
+                                checkpoint.completed(range.range());
+                                progress.completedRanges.incrementAndGet();
+                                listener.accept(progress.snapshot());
+                            }
+                        }, executor)
+                        .exceptionally(error -> {
+                            copy.fail(error);
+                            return null;
+                        }));
+            }
+            CompletableFuture.allOf(copies.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            executor.shutdownNow();
+        }
+        Throwable failure = copy.failure.get();
+        if (failure != null) {
+            throw failure instanceof RuntimeException cause ? cause
+                    : new IllegalStateException("Copy of %s from %s to %s failed".formatted(entityClass.getSimpleName(), sourceKeyspace, targetKeyspace), failure);
+        }
+        return progress.snapshot();
+    }
+
+    private record Copy<T>(TokenRangeScanner.Target source, AsyncCassandraOperations target, Class<T> entityClass,
+                           Semaphore writes, Progress progress, AtomicReference<Throwable> failure) {
+
+        Copy(TokenRangeScanner.Target source, AsyncCassandraOperations target, Class<T> entityClass, Semaphore writes, Progress progress) {
+            this(source, target, entityClass, writes, progress, new AtomicReference<>());
+        }
+
+        /**
+         * Reads the range and starts its writes, the returned future tells whether all rows were written once they
+         * completed. The range is given up as soon as any range failed.
+         */
+        CompletableFuture<Boolean> copyRange(BoundStatement statement) {
+            // Starts at one for the reader, so the range only completes once it is read and all writes completed
+            AtomicLong pending = new AtomicLong(1);
+            CompletableFuture<Boolean> copied = new CompletableFuture<>();
+            try {
+                for (Row row : source.session().execute(statement)) {
+                    if (failure.get() != null) {
+                        break;
+                    }
+                    T entity = source.converter().read(entityClass, row);
+                    writes.acquireUninterruptibly();
+                    pending.incrementAndGet();
+                    insert(entity).whenComplete((ignored, error) -> {
+                        writes.release();
+                        if (error == null) {
+                            progress.rows.increment();
+                        } else {
+                            fail(error);
+                        }
+                        if (pending.decrementAndGet() == 0) {
+                            copied.complete(failure.get() == null);
+                        }
+                    });
+                }
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+            if (pending.decrementAndGet() == 0) {
+                copied.complete(failure.get() == null);
+            }
+            return copied;
+        }
+
+        private CompletableFuture<T> insert(T entity) {
+            try {
+                return target.insert(entity);
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        void fail(Throwable error) {
+            failure.compareAndSet(null, error);
+        }
+    }
+
+    private static class Progress {
+
+        private final int ranges;
+
+        private final long started = System.nanoTime();
+
+        private final AtomicInteger completedRanges = new AtomicInteger();
+
+        private final AtomicInteger skippedRanges = new AtomicInteger();
+
+        private final LongAdder rows = new LongAdder();
+
+        Progress(int ranges) {
+            this.ranges = ranges;
+        }
+
+        CopyProgress snapshot() {
+            return new CopyProgress(ranges, completedRanges.get(), skippedRanges.get(), rows.sum(), Duration.ofNanos(System.nanoTime() - started));
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package at.willhaben.springboot2keyspaces.streaming;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.metadata.schema.ColumnMetadata;
+import com.datastax.oss.driver.api.core.metadata.schema.TableMetadata;
+import com.datastax.oss.driver.api.core.metadata.token.Token;
+import com.datastax.oss.driver.api.core.metadata.token.TokenRange;
+import com.datastax.oss.driver.api.querybuilder.select.Selector;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Verifies that the table of an entity has the same rows in two configured keyspaces, e.g. after dual writes or a
+ * {@link KeyspaceCopier copy}, without comparing the tables row by row. Both keyspaces are read in the same token
+ * ranges in parallel, each range is hashed into {@code leavesPerRange} sub-ranges in a single pass holding no rows.
+ * Only sub-ranges whose hashes differ are read again and compared by primary key, so the rows held in memory and the
+ * rows read twice grow with the divergence instead of the table.
+ */
+@Component
+public class KeyspaceVerifier {
+
+    private static final int DEFAULT_LEAVES_PER_RANGE = 16;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final TokenRangeScanner scanner;
+
+    public KeyspaceVerifier(TokenRangeScanner scanner) {
+        this.scanner = scanner;
+    }
+
+    /**
+     * Verifies the table of the entity with one worker per available processor and keyspace.
+     */
+    public <T> VerificationResult<T> verify(Class<T> entityClass, String sourceKeyspace, String targetKeyspace) {
+        return verify(entityClass, sourceKeyspace, targetKeyspace, Runtime.getRuntime().availableProcessors(), DEFAULT_LEAVES_PER_RANGE);
+    }
+
+    public <T> VerificationResult<T> verify(Class<T> entityClass, String sourceKeyspace, String targetKeyspace, int parallelism,
+                                            int leavesPerRange) {
+        TokenRangeScanner.Target source = scanner.target(sourceKeyspace);
+        TokenRangeScanner.Target target = scanner.target(targetKeyspace);
+        // Columns of the source table in a fixed order, so rows of both keyspaces are hashed alike
+        TableMetadata table = source.session().getMetadata().getKeyspace(sourceKeyspace)
+                .flatMap(keyspace -> keyspace.getTable(source.converter().getMappingContext()
+                        .getRequiredPersistentEntity(entityClass).getTableName()))
+                .orElseThrow(() -> new IllegalStateException("Table of %s not found in keyspace %s".formatted(entityClass.getSimpleName(), sourceKeyspace)));
+        List<CqlIdentifier> columns = new ArrayList<>(table.getColumns().keySet());
+        int[] primaryKey = table.getPrimaryKey().stream().map(ColumnMetadata::getName).mapToInt(column -> columns.indexOf(column) + 1).toArray();
+
+        Side<T> sourceSide = new Side<>(source, scanner.rangeQuery(sourceKeyspace, entityClass, (select, partitionKey) -> select
+                .function("token", partitionKey.stream().map(Selector::column).toList())
+                .columnsIds(columns)), entityClass, primaryKey);
+        Side<T> targetSide = new Side<>(target, scanner.rangeQuery(targetKeyspace, entityClass, (select, partitionKey) -> select
+                .function("token", partitionKey.stream().map(Selector::column).toList())
+                .columnsIds(columns)), entityClass, primaryKey);
+
+        List<TokenRange> ranges = scanner.ranges(sourceKeyspace, parallelism);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism * 2, new CustomizableThreadFactory("keyspace-verify-"));
+        try {
+            List<CompletableFuture<RangeResult<T>>> results = new ArrayList<>();
+            for (TokenRange range : ranges) {
+                List<TokenRange> leaves = range.splitEvenly(leavesPerRange);
+                CompletableFuture<long[]> sourceHashes = CompletableFuture.supplyAsync(() -> sourceSide.hash(range, leaves), executor);
+                CompletableFuture<long[]> targetHashes = CompletableFuture.supplyAsync(() -> targetSide.hash(range, leaves), executor);
+                results.add(sourceHashes.thenCombineAsync(targetHashes,
+                        (sourceLeaves, targetLeaves) -> compare(leaves, sourceLeaves, targetLeaves, sourceSide, targetSide), executor));
+            }
+            return CompletableFuture.allOf(results.toArray(CompletableFuture[]::new))
+                    .thenApply(ignored -> summarize(ranges.size(), results.stream().map(CompletableFuture::join).toList()))
+                    .join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T> RangeResult<T> compare(List<TokenRange> leaves, long[] sourceLeaves, long[] targetLeaves,
+                                              Side<T> source, Side<T> target) {
+        int mismatchingLeaves = 0;
+        List<RowDifference<T>> differences = new ArrayList<>();
+        for (int leaf = 0; leaf < leaves.size(); leaf++) {
+            if (sourceLeaves[leaf] == targetLeaves[leaf]) {
+                continue;
+            }
+            mismatchingLeaves++;
+            Map<List<ByteBuffer>, Row> sourceRows = source.rows(leaves.get(leaf));
+            Map<List<ByteBuffer>, Row> targetRows = target.rows(leaves.get(leaf));
+            sourceRows.forEach((key, sourceRow) -> {
+                Row targetRow = targetRows.remove(key);
+                if (targetRow == null) {
+                    differences.add(new RowDifference<>(source.read(sourceRow), null));
+                } else if (hash(sourceRow) != hash(targetRow)) {
+                    differences.add(new RowDifference<>(source.read(sourceRow), target.read(targetRow)));
+                }
+            });
+            targetRows.values().forEach(targetRow -> differences.add(new RowDifference<>(null, target.read(targetRow))));
+        }
+        return new RangeResult<>(mismatchingLeaves, differences);
+    }
+
+    private static <T> VerificationResult<T> summarize(int ranges, List<RangeResult<T>> results) {
+        List<RowDifference<T>> differences = new ArrayList<>();
+        int mismatchingRanges = 0;
+        int mismatchingLeaves = 0;
+        for (RangeResult<T> result : results) {
+            if (result.mismatchingLeaves() > 0) {
+                mismatchingRanges++;
+                mismatchingLeaves += result.mismatchingLeaves();
+            }
+            differences.addAll(result.differences());
+        }
+        return new VerificationResult<>(ranges, mismatchingRanges, mismatchingLeaves, differences);
+    }
+
+    /**
+     * FNV-1a hash of the serialized columns, which skips the token in the first column.
+     */
+    private static long hash(Row row) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 1; i < row.size(); i++) {
+            ByteBuffer bytes = row.getBytesUnsafe(i);
+            if (bytes == null) {
+                hash = (hash ^ 0xff) * FNV_PRIME;
+                continue;
+            }
+            for (int position = bytes.position(); position < bytes.limit(); position++) {
+                hash = (hash ^ (bytes.get(position) & 0xff)) * FNV_PRIME;
+            }
+            // Separates the columns, so moving bytes from one column to the next changes the hash
+            hash = (hash ^ bytes.remaining()) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private record Side<T>(TokenRangeScanner.Target keyspace, TokenRangeScanner.RangeQuery query, Class<T> entityClass,
+                           int[] primaryKey) {
+
+        /**
+         * Hashes the rows of the range into its leaves, rows are returned in token order so the leaf only moves forward.
+         * Row hashes are summed up, so the leaf hash does not depend on the order of the rows within a partition.
+         */
+        long[] hash(TokenRange range, List<TokenRange> leaves) {
+            long[] hashes = new long[leaves.size()];
+            int leaf = 0;
+            for (Row row : keyspace.session().execute(query.bind(range))) {
+                Token token = row.getToken(0);
+                while (leaf < leaves.size() - 1 && !leaves.get(leaf).contains(token)) {
+                    leaf++;
+                }
+                hashes[leaf] += KeyspaceVerifier.hash(row);
+            }
+            return hashes;
+        }
+
+        Map<List<ByteBuffer>, Row> rows(TokenRange leaf) {
+            Map<List<ByteBuffer>, Row> rows = new HashMap<>();
+            for (TokenRange unwrapped : leaf.unwrap()) {
+                for (Row row : keyspace.session().execute(query.bind(unwrapped))) {
+                    List<ByteBuffer> key = new ArrayList<>(primaryKey.length);
+                    for (int column : primaryKey) {
+                        key.add(Objects.requireNonNull(row.getBytesUnsafe(column)).duplicate());
+                    }
+                    rows.put(key, row);
+                }
+            }
+            return rows;
+        }
+
+        T read(Row row) {
+            return keyspace.converter().read(entityClass, row);
+        }
+    }
+
+    private record RangeResult<T>(int mismatchingLeaves, List<RowDifference<T>> differences) {
+    }
+}
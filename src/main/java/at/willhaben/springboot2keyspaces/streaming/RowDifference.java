@@ -0,0 +1,7 @@
+package at.willhaben.springboot2keyspaces.streaming;
+
+/**
+ * Row which differs between two keyspaces, the entity of a keyspace lacking the row is {@code null}.
+ */
+public record RowDifference<T>(T source, T target) {
+}
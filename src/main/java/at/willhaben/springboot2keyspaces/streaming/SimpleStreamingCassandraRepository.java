@@ -0,0 +1,30 @@
+package at.willhaben.springboot2keyspaces.streaming;
+
+import org.springframework.data.cassandra.core.CassandraOperations;
+import org.springframework.data.cassandra.core.query.Query;
+import org.springframework.data.cassandra.repository.query.CassandraEntityInformation;
+import org.springframework.data.cassandra.repository.support.SimpleCassandraRepository;
+
+import java.util.stream.Stream;
+
+/**
+ * Repository base class of every keyspace, implementing {@link StreamingCassandraRepository}.
+ */
+public class SimpleStreamingCassandraRepository<T, ID> extends SimpleCassandraRepository<T, ID>
+        implements StreamingCassandraRepository<T, ID> {
+
+    private final CassandraEntityInformation<T, ID> entityInformation;
+
+    private final CassandraOperations operations;
+
+    public SimpleStreamingCassandraRepository(CassandraEntityInformation<T, ID> metadata, CassandraOperations operations) {
+        super(metadata, operations);
+        this.entityInformation = metadata;
+        this.operations = operations;
+    }
+
+    @Override
+    public Stream<T> streamAll() {
+        return operations.stream(Query.empty(), entityInformation.getJavaType());
+    }
+}
@@ -0,0 +1,21 @@
+package at.willhaben.springboot2keyspaces.streaming;
+
+import org.springframework.data.cassandra.repository.CassandraRepository;
+import org.springframework.data.repository.NoRepositoryBean;
+
+import java.util.stream.Stream;
+
+/**
+ * Repository which reads a whole table page by page instead of materializing it like {@link #findAll()}.
+ * {@link #findAll(org.springframework.data.domain.Pageable)} returns a single {@link org.springframework.data.domain.Slice}.
+ * Pages hold {@code cassandra.page-size} rows unless the pageable requests another size.
+ */
+@NoRepositoryBean
+public interface StreamingCassandraRepository<T, ID> extends CassandraRepository<T, ID> {
+
+    /**
+     * Streams all rows of the table, the next page is fetched when the previous one has been consumed.
+     * The stream has to be closed to release the current page.
+     */
+    Stream<T> streamAll();
+}
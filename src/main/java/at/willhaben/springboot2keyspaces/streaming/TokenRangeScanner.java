@@ -0,0 +1,205 @@
+package at.willhaben.springboot2keyspaces.streaming;
+
+import at.willhaben.springboot2keyspaces.KeyspaceProperties;
+import at.willhaben.springboot2keyspaces.KeyspaceRegistrar;
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.metadata.TokenMap;
+import com.datastax.oss.driver.api.core.metadata.token.TokenRange;
+import com.datastax.oss.driver.api.querybuilder.QueryBuilder;
+import com.datastax.oss.driver.api.querybuilder.select.Select;
+import com.datastax.oss.driver.api.querybuilder.select.SelectFrom;
+import org.springframework.data.cassandra.core.convert.CassandraConverter;
+import org.springframework.data.cassandra.core.mapping.CassandraMappingContext;
+import org.springframework.data.cassandra.core.mapping.CassandraPersistentEntity;
+import org.springframework.data.cassandra.core.mapping.CassandraPersistentProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Walks a whole table of a configured keyspace by splitting the token ring into ranges which are read in parallel.
+ * Each worker reads its range page by page, so at most {@code parallelism} pages of rows are held in
+ * memory at the same time. The consumer is called concurrently from the workers and has to be thread safe.
+ */
+@Component
+public class TokenRangeScanner {
+
+    /**
+     * Ranges per worker, so a worker which finishes early picks up the rest of a slower one.
+     */
+    private static final int SPLITS_PER_WORKER = 4;
+
+    private final Map<String, Target> targets = new HashMap<>();
+
+    public TokenRangeScanner(KeyspaceProperties keyspaceProperties, Map<String, CqlSession> sessions,
+                             Map<String, CassandraConverter> converters) {
+        keyspaceProperties.getKeyspaces().forEach((prefix, keyspace) -> targets.put(keyspace.getKeyspaceName(), new Target(
+                sessions.get(KeyspaceRegistrar.beanName(prefix, KeyspaceRegistrar.SESSION)),
+                converters.get(KeyspaceRegistrar.beanName(prefix, KeyspaceRegistrar.CONVERTER)),
+                keyspaceProperties.resolveDriver(keyspace).getPageSize())));
+    }
+
+    /**
+     * Scans the table of the entity with one worker per available processor.
+     *
+     * @return the number of rows passed to the consumer
+     */
+    public <T> long scan(String keyspaceName, Class<T> entityClass, Consumer<? super T> consumer) {
+        return scan(keyspaceName, entityClass, Runtime.getRuntime().availableProcessors(), consumer);
+    }
+
+    /**
+     * Scans the table of the entity with the given number of workers.
+     *
+     * @return the number of rows passed to the consumer
+     */
+    public <T> long scan(String keyspaceName, Class<T> entityClass, int parallelism, Consumer<? super T> consumer) {
+        Target target = target(keyspaceName);
+        List<RangeStatement> ranges = rangeStatements(keyspaceName, entityClass, parallelism);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, new CustomizableThreadFactory("token-range-scan-"));
+        try {
+            List<CompletableFuture<Long>> scans = new ArrayList<>();
+            for (RangeStatement range : ranges) {
+                scans.add(CompletableFuture.supplyAsync(() -> scanRange(target, range.statement(), entityClass, consumer), executor));
+            }
+            return CompletableFuture.allOf(scans.toArray(CompletableFuture[]::new))
+                    .thenApply(ignored -> scans.stream().mapToLong(CompletableFuture::join).sum())
+                    .join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    Target target(String keyspaceName) {
+        Target target = targets.get(keyspaceName);
+        if (target == null) {
+            throw new IllegalArgumentException("Keyspace %s is not configured".formatted(keyspaceName));
+        }
+        return target;
+    }
+
+    /**
+     * Statements reading the table of the entity, one per token range. The ranges only depend on the token ring and
+     * the parallelism, so they are the same for every call until the ring changes.
+     */
+    List<RangeStatement> rangeStatements(String keyspaceName, Class<?> entityClass, int parallelism) {
+        RangeQuery query = rangeQuery(keyspaceName, entityClass, (select, partitionKey) -> select.all());
+        return ranges(keyspaceName, parallelism).stream()
+                .map(range -> new RangeStatement(query.format(range), query.bind(range)))
+                .toList();
+    }
+
+    List<TokenRange> ranges(String keyspaceName, int parallelism) {
+        return split(tokenMap(target(keyspaceName)).getTokenRanges(), parallelism);
+    }
+
+    /**
+     * Query of the table of the entity restricted to a token range, the selection is given the partition key columns.
+     */
+    RangeQuery rangeQuery(String keyspaceName, Class<?> entityClass, BiFunction<SelectFrom, List<CqlIdentifier>, Select> selection) {
+        Target target = target(keyspaceName);
+        CassandraMappingContext mappingContext = target.converter().getMappingContext();
+        CassandraPersistentEntity<?> entity = mappingContext.getRequiredPersistentEntity(entityClass);
+        List<CqlIdentifier> partitionKey = partitionKeyColumns(mappingContext, entity);
+
+        Select select = selection.apply(QueryBuilder.selectFrom(CqlIdentifier.fromCql(keyspaceName), entity.getTableName()), partitionKey);
+        PreparedStatement bounded = target.session().prepare(select
+                .whereTokenFromIds(partitionKey).isGreaterThan(QueryBuilder.bindMarker())
+                .whereTokenFromIds(partitionKey).isLessThanOrEqualTo(QueryBuilder.bindMarker())
+                .build());
+        // A range ending at the minimum token reaches to the end of the ring
+        PreparedStatement open = target.session().prepare(select
+                .whereTokenFromIds(partitionKey).isGreaterThan(QueryBuilder.bindMarker())
+                .build());
+        return new RangeQuery(tokenMap(target), bounded, open, target.pageSize());
+    }
+
+    private static TokenMap tokenMap(Target target) {
+        return target.session().getMetadata().getTokenMap()
+                .orElseThrow(() -> new IllegalStateException("Token metadata is disabled, token ranges are unknown"));
+    }
+
+    private static <T> long scanRange(Target target, BoundStatement statement, Class<T> entityClass, Consumer<? super T> consumer) {
+        long rows = 0;
+        for (Row row : target.session().execute(statement)) {
+            consumer.accept(target.converter().read(entityClass, row));
+            rows++;
+        }
+        return rows;
+    }
+
+    private static List<TokenRange> split(Set<TokenRange> ranges, int parallelism) {
+        int splitsPerRange = Math.max(1, parallelism * SPLITS_PER_WORKER / ranges.size());
+        List<TokenRange> splits = new ArrayList<>();
+        for (TokenRange range : ranges) {
+            // A full ring has equal start and end tokens, splitting it yields ranges which can be queried
+            for (TokenRange split : range.splitEvenly(range.isFullRing() ? Math.max(2, splitsPerRange) : splitsPerRange)) {
+                splits.addAll(split.unwrap());
+            }
+        }
+        return splits;
+    }
+
+    private static List<CqlIdentifier> partitionKeyColumns(CassandraMappingContext mappingContext, CassandraPersistentEntity<?> entity) {
+        List<CassandraPersistentProperty> partitionKey = new ArrayList<>();
+        for (CassandraPersistentProperty property : entity) {
+            if (property.isCompositePrimaryKey()) {
+                for (CassandraPersistentProperty keyProperty : mappingContext.getRequiredPersistentEntity(property)) {
+                    if (keyProperty.isPartitionKeyColumn()) {
+                        partitionKey.add(keyProperty);
+                    }
+                }
+            } else if (property.isPartitionKeyColumn()) {
+                partitionKey.add(property);
+            }
+        }
+        return partitionKey.stream()
+                .sorted(Comparator.comparingInt(property -> property.hasOrdinal() ? property.getRequiredOrdinal() : 0))
+                .map(CassandraPersistentProperty::getRequiredColumnName)
+                .toList();
+    }
+
+    record Target(CqlSession session, CassandraConverter converter, int pageSize) {
+    }
+
+    /**
+     * Statement reading a token range, identified by its formatted start and end token.
+     */
+    record RangeStatement(String range, BoundStatement statement) {
+    }
+
+    record RangeQuery(TokenMap tokenMap, PreparedStatement bounded, PreparedStatement open, int pageSize) {
+
+        /**
+         * Binds a range which does not wrap around the ring, i.e. one of {@link TokenRange#unwrap()}.
+         */
+        BoundStatement bind(TokenRange range) {
+            BoundStatement statement = range.getEnd().compareTo(range.getStart()) > 0
+                    ? bounded.bind().setToken(0, range.getStart()).setToken(1, range.getEnd())
+                    : open.bind().setToken(0, range.getStart());
+            return statement.setPageSize(pageSize);
+        }
+
+        String format(TokenRange range) {
+            return "%s:%s".formatted(tokenMap.format(range.getStart()), tokenMap.format(range.getEnd()));
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package at.willhaben.springboot2keyspaces.streaming;
+
+import java.util.List;
+
+/**
+ * Outcome of a {@link KeyspaceVerifier} run.
+ *
+ * @param ranges             token ranges hashed in both keyspaces
+ * @param mismatchingRanges  ranges whose hashes differed in at least one sub-range
+ * @param mismatchingLeaves  sub-ranges whose hashes differed, only their rows were compared
+ * @param differences        rows missing in one keyspace or with different columns
+ */
+public record VerificationResult<T>(int ranges, int mismatchingRanges, int mismatchingLeaves, List<RowDifference<T>> differences) {
+
+    public boolean isConsistent() {
+        return differences.isEmpty();
+    }
+}
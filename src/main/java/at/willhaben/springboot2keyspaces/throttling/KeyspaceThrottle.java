@@ -0,0 +1,107 @@
+package at.willhaben.springboot2keyspaces.throttling;
+
+import at.willhaben.springboot2keyspaces.KeyspaceProperties;
+import com.datastax.oss.driver.api.core.RequestThrottlingException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bulkhead of a single keyspace which limits its requests in flight. Requests exceeding the limit wait in a bounded
+ * queue, they are rejected with a {@link RequestThrottlingException} if the queue is full or no request finished within
+ * the queue timeout. A burst against one keyspace is therefore rejected there instead of using up the capacity of the
+ * cluster or the shared session.
+ */
+public class KeyspaceThrottle implements MeterBinder {
+
+    private final String keyspaceName;
+
+    private final int maxInFlight;
+
+    private final int maxQueueSize;
+
+    private final Duration queueTimeout;
+
+    private final Semaphore permits;
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final LongAdder rejected = new LongAdder();
+
+    public KeyspaceThrottle(String keyspaceName, KeyspaceProperties.Throttling throttling) {
+        this.keyspaceName = keyspaceName;
+        this.maxInFlight = throttling.getMaxInFlight();
+        this.maxQueueSize = throttling.getMaxQueueSize();
+        this.queueTimeout = throttling.getQueueTimeout();
+        this.permits = new Semaphore(maxInFlight, true);
+    }
+
+    /**
+     * Waits for a free slot, which has to be given back with {@link #release()} once the request completed.
+     */
+    public void acquire() {
+        // tryAcquire() barges ahead of queued requests, the timed variant honours the fairness of the semaphore
+        try {
+            if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw reject("the thread was interrupted");
+        }
+        if (queued.incrementAndGet() > maxQueueSize) {
+            queued.decrementAndGet();
+            throw reject("%d requests are queued already".formatted(maxQueueSize));
+        }
+        try {
+            if (!permits.tryAcquire(queueTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw reject("no request finished within %s".formatted(queueTimeout));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw reject("the thread was interrupted while queued");
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int getInFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    private RequestThrottlingException reject(String reason) {
+        rejected.increment();
+        return new RequestThrottlingException("Request to keyspace %s rejected, %s".formatted(keyspaceName, reason));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Tags tags = Tags.of("keyspace", keyspaceName);
+        Gauge.builder("cassandra.keyspace.throttle.in-flight", this, KeyspaceThrottle::getInFlight)
+                .tags(tags).description("Requests in flight").register(registry);
+        Gauge.builder("cassandra.keyspace.throttle.queued", this, KeyspaceThrottle::getQueued)
+                .tags(tags).description("Requests waiting for a slot").register(registry);
+        FunctionCounter.builder("cassandra.keyspace.throttle.rejected", this, KeyspaceThrottle::getRejected)
+                .tags(tags).description("Requests rejected because the queue was full or timed out").register(registry);
+    }
+}
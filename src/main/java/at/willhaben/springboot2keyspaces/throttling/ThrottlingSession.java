@@ -0,0 +1,41 @@
+package at.willhaben.springboot2keyspaces.throttling;
+
+import at.willhaben.springboot2keyspaces.DelegatingCqlSession;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.session.Request;
+import com.datastax.oss.driver.api.core.type.reflect.GenericType;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Session of a keyspace's template which passes every request through the {@link KeyspaceThrottle} of the keyspace.
+ * Asynchronous requests hold their slot until they complete. Following pages of a result set are fetched by the driver
+ * directly and are not throttled again, neither are prepared statements, which the driver answers from its cache.
+ */
+public class ThrottlingSession extends DelegatingCqlSession {
+
+    private final KeyspaceThrottle throttle;
+
+    public ThrottlingSession(CqlSession delegate, KeyspaceThrottle throttle) {
+        super(delegate);
+        this.throttle = throttle;
+    }
+
+    @Override
+    public <RequestT extends Request, ResultT> ResultT execute(RequestT request, GenericType<ResultT> resultType) {
+        throttle.acquire();
+        ResultT result;
+        try {
+            result = delegate.execute(request, resultType);
+        } catch (RuntimeException | Error e) {
+            throttle.release();
+            throw e;
+        }
+        if (result instanceof CompletionStage<?> stage) {
+            stage.whenComplete((ignored, error) -> throttle.release());
+        } else {
+            throttle.release();
+        }
+        return result;
+    }
+}
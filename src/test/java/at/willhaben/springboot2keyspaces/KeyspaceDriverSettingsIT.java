@@ -0,0 +1,56 @@
+package at.willhaben.springboot2keyspaces;
+
+import at.willhaben.springboot2keyspaces.support.CassandraTestContainer;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.config.DefaultDriverOption;
+import com.datastax.oss.driver.api.core.config.DriverExecutionProfile;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@TestPropertySource(properties = "cassandra.keyspaces.a.driver.consistency=ONE")
+class KeyspaceDriverSettingsIT {
+
+    @Autowired
+    @Qualifier("aSession")
+    private CqlSession aSession;
+
+    @Autowired
+    @Qualifier("bSession")
+    private CqlSession bSession;
+
+    @BeforeAll
+    static void setupCassandraConnectionProperties() {
+        CassandraTestContainer.setConnectionProperties();
+        CassandraTestContainer.setKeyspaceProperties();
+    }
+
+    @Test
+    void givenConsistencyOfKeyspace1_whenExecutingStatements_thenOnlyKeyspace1UsesIt() {
+        // When
+        DriverExecutionProfile aProfile = executionProfile(aSession);
+        DriverExecutionProfile bProfile = executionProfile(bSession);
+
+        // Then
+        assertThat(aProfile.getString(DefaultDriverOption.REQUEST_CONSISTENCY))
+                .isEqualTo("ONE");
+        assertThat(bProfile.getString(DefaultDriverOption.REQUEST_CONSISTENCY))
+                .isEqualTo("LOCAL_ONE");
+    }
+
+    private static DriverExecutionProfile executionProfile(CqlSession session) {
+        Statement<?> executed = (Statement<?>) session.execute(SimpleStatement.newInstance("SELECT release_version FROM system.local"))
+                .getExecutionInfo().getRequest();
+        return executed.getExecutionProfileName() == null
+                ? session.getContext().getConfig().getDefaultProfile()
+                : session.getContext().getConfig().getProfile(executed.getExecutionProfileName());
+    }
+}
@@ -0,0 +1,118 @@
+package at.willhaben.springboot2keyspaces;
+
+import at.willhaben.springboot2keyspaces.keyspace1.A;
+import at.willhaben.springboot2keyspaces.keyspace1.ARepository;
+import at.willhaben.springboot2keyspaces.keyspace2.B;
+import at.willhaben.springboot2keyspaces.keyspace2.BRepository;
+import at.willhaben.springboot2keyspaces.support.CassandraTestContainer;
+import com.datastax.dse.driver.api.core.cql.reactive.ReactiveRow;
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Runs with {@code cassandra.lazy-sessions} in keyspaces of its own, so their schema is only created when their
+ * sessions are opened. The keyspaces are not reset between tests, as that would open their sessions.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "a.keyspace-name=a_lazy_keyspace",
+        "b.keyspace-name=b_lazy_keyspace",
+        "cassandra.lazy-sessions=true",
+        "cassandra.session-idle-timeout=500ms"
+})
+class LazySessionsIT {
+
+    @Autowired
+    private ARepository aRepository;
+
+    @Autowired
+    private BRepository bRepository;
+
+    @Autowired
+    @Qualifier("aSession")
+    private CqlSession aSession;
+
+    @Autowired
+    @Qualifier("bSession")
+    private CqlSession bSession;
+
+    @BeforeAll
+    static void setupCassandraConnectionProperties() {
+        CassandraTestContainer.setConnectionProperties();
+        CassandraTestContainer.setKeyspaceProperties();
+    }
+
+    @Test
+    void givenLazySessions_whenKeyspace1IsUsedTheFirstTime_thenItsSessionIsOpenedWithItsSchema() {
+        // Given
+        A a = new A(UUID.randomUUID(), "test", "test");
+        boolean openedAtStartup = ((LazyKeyspaceSession) aSession).isOpen();
+
+        // When
+        aRepository.insert(a);
+
+        // Then
+        assertThat(openedAtStartup)
+                .isFalse();
+        assertThat(aRepository.findAll())
+                .contains(a);
+    }
+
+    @Test
+    void givenValueInsertedIntoB_whenKeyspace2IsIdle_thenItsSessionIsClosedAndReopenedByTheNextRequest() {
+        // Given
+        B b = new B(UUID.randomUUID(), "test", "test");
+        bRepository.insert(b);
+
+        // When
+        await().atMost(Duration.ofSeconds(10))
+                .until(() -> !((LazyKeyspaceSession) bSession).isOpen());
+        List<B> read = bRepository.findAll();
+
+        // Then
+        assertThat(read)
+                .contains(b);
+    }
+
+    @Test
+    void givenReactiveQueryWithoutDemand_whenClosingIdleSession_thenItStaysOpenUntilTheQueryIsCancelled() {
+        // Given
+        bRepository.insert(new B(UUID.randomUUID(), "test", "test"));
+        LazyKeyspaceSession session = new LazyKeyspaceSession(CqlIdentifier.fromCql("b_lazy_keyspace"), () -> bSession, closed -> {
+        });
+        BaseSubscriber<ReactiveRow> subscriber = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                // Without demand the query never completes
+            }
+        };
+        Flux.from(session.executeReactive("SELECT * FROM A")).subscribe(subscriber);
+
+        // When
+        boolean closedWhileSubscribed = session.closeIfIdle(Duration.ZERO);
+        subscriber.cancel();
+        boolean closedAfterCancel = session.closeIfIdle(Duration.ZERO);
+
+        // Then
+        assertThat(closedWhileSubscribed)
+                .isFalse();
+        assertThat(closedAfterCancel)
+                .isTrue();
+    }
+}
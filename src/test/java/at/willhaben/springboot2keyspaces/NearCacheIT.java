@@ -0,0 +1,80 @@
+package at.willhaben.springboot2keyspaces;
+
+import at.willhaben.springboot2keyspaces.global.C;
+import at.willhaben.springboot2keyspaces.keyspace1.Keyspace1CRepository;
+import at.willhaben.springboot2keyspaces.keyspace2.Keyspace2CRepository;
+import at.willhaben.springboot2keyspaces.support.CassandraTestContainer;
+import at.willhaben.springboot2keyspaces.support.KeyspaceReset;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+        "cassandra.keyspaces.a.near-cache.maximum-size=1000",
+        "cassandra.keyspaces.b.near-cache.maximum-size=1000"
+})
+class NearCacheIT {
+
+    @Autowired
+    private Keyspace1CRepository keyspace1CRepository;
+
+    @Autowired
+    private Keyspace2CRepository keyspace2CRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ConfigurableListableBeanFactory beanFactory;
+
+    @BeforeAll
+    static void setupCassandraConnectionProperties() {
+        CassandraTestContainer.setConnectionProperties();
+        CassandraTestContainer.setKeyspaceProperties();
+    }
+
+    @BeforeEach
+    void setUp() {
+        KeyspaceReset.truncateAll(beanFactory);
+    }
+
+    @Test
+    void given2ValuesWithSameIdReadBefore_whenUpdatingValueInKeyspace1_thenCachedValuesStayPerKeyspace() {
+        // Given
+        UUID commonId = UUID.randomUUID();
+        C c1 = new C(commonId, "test1", "test1");
+        C c2 = new C(commonId, "test1", "test2");
+        keyspace1CRepository.insert(c1);
+        keyspace2CRepository.insert(c2);
+        keyspace1CRepository.findByA(commonId);
+        keyspace2CRepository.findByA(commonId);
+        double hits = meterRegistry.get("cache.gets").tags("keyspace", "a_keyspace", "result", "hit").functionCounter().count();
+
+        // When
+        C cachedFromKeyspace1 = keyspace1CRepository.findByA(commonId);
+        C cachedFromKeyspace2 = keyspace2CRepository.findByA(commonId);
+        C updated = new C(commonId, "test1", "test3");
+        keyspace1CRepository.save(updated);
+        C updatedFromKeyspace1 = keyspace1CRepository.findByA(commonId);
+
+        // Then
+        assertThat(cachedFromKeyspace1)
+                .isEqualTo(c1);
+        assertThat(cachedFromKeyspace2)
+                .isEqualTo(c2);
+        assertThat(updatedFromKeyspace1)
+                .isEqualTo(updated);
+        assertThat(meterRegistry.get("cache.gets").tags("keyspace", "a_keyspace", "result", "hit").functionCounter().count())
+                .isEqualTo(hits + 1);
+    }
+}
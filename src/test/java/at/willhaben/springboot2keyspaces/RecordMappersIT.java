@@ -0,0 +1,94 @@
+package at.willhaben.springboot2keyspaces;
+
+import at.willhaben.springboot2keyspaces.keyspace2.B;
+import at.willhaben.springboot2keyspaces.keyspace2.BRepository;
+import at.willhaben.springboot2keyspaces.mapping.RecordMappingCassandraConverter;
+import at.willhaben.springboot2keyspaces.support.CassandraTestContainer;
+import at.willhaben.springboot2keyspaces.support.KeyspaceReset;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.cassandra.core.CassandraOperations;
+import org.springframework.data.cassandra.core.convert.CassandraConverter;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@TestPropertySource(properties = "cassandra.record-mappers=true")
+class RecordMappersIT {
+
+    @Autowired
+    private BRepository bRepository;
+
+    @Autowired
+    @Qualifier("bSession")
+    private CqlSession bSession;
+
+    @Autowired
+    @Qualifier("bConverter")
+    private CassandraConverter bConverter;
+
+    @Autowired
+    @Qualifier("bCassandraTemplate")
+    private CassandraOperations bCassandraTemplate;
+
+    @Autowired
+    private ConfigurableListableBeanFactory beanFactory;
+
+    @BeforeAll
+    static void setupCassandraConnectionProperties() {
+        CassandraTestContainer.setConnectionProperties();
+        CassandraTestContainer.setKeyspaceProperties();
+    }
+
+    @BeforeEach
+    void setUp() {
+        KeyspaceReset.truncateAll(beanFactory);
+    }
+
+    @Test
+    void givenValueInsertedIntoB_whenReadWithRecordMapper_thenComponentsAreReadFromMappedColumns() {
+        // Given
+        B b = new B(UUID.randomUUID(), "test1", "test2");
+        bRepository.insert(b);
+
+        // When
+        Row row = bSession.execute(SimpleStatement.newInstance("SELECT * FROM A WHERE a = ?", b.x())).one();
+        B read = bConverter.read(B.class, row);
+
+        // Then
+        assertThat(bConverter)
+                .isInstanceOf(RecordMappingCassandraConverter.class);
+        assertThat(row.getString("b"))
+                .isEqualTo("test1");
+        assertThat(read)
+                .isEqualTo(b);
+    }
+
+    @Test
+    void given2ValuesInsertedIntoB_whenUpdatingAndDeletingWithRecordMapper_thenOnlyTheirRowsAreChanged() {
+        // Given
+        B updated = new B(UUID.randomUUID(), "test1", "test1");
+        B deleted = new B(UUID.randomUUID(), "test2", "test2");
+        bRepository.insert(List.of(updated, deleted));
+
+        // When
+        bCassandraTemplate.update(new B(updated.x(), updated.y(), "updated"));
+        bRepository.delete(deleted);
+
+        // Then
+        assertThat(bRepository.findAll())
+                .containsExactly(new B(updated.x(), updated.y(), "updated"));
+    }
+}
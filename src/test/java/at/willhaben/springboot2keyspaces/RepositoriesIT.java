@@ -1,38 +1,77 @@
 package at.willhaben.springboot2keyspaces;
 
+import at.willhaben.springboot2keyspaces.aot.KeyspaceRepositoriesAotProcessor;
+import at.willhaben.springboot2keyspaces.async.KeyspaceExecutor;
 import at.willhaben.springboot2keyspaces.global.C;
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.config.DefaultDriverOption;
+import com.datastax.oss.driver.api.core.config.DriverExecutionProfile;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.datastax.oss.driver.api.core.metadata.schema.KeyspaceMetadata;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import at.willhaben.springboot2keyspaces.global.CRepository;
 import at.willhaben.springboot2keyspaces.keyspace1.A;
 import at.willhaben.springboot2keyspaces.keyspace1.ARepository;
 import at.willhaben.springboot2keyspaces.keyspace1.Keyspace1CRepository;
+import at.willhaben.springboot2keyspaces.keyspace1.Keyspace1ReactiveCRepository;
 import at.willhaben.springboot2keyspaces.keyspace2.B;
 import at.willhaben.springboot2keyspaces.keyspace2.BRepository;
 import at.willhaben.springboot2keyspaces.keyspace2.Keyspace2CRepository;
+import at.willhaben.springboot2keyspaces.keyspace2.Keyspace2ReactiveCRepository;
+import at.willhaben.springboot2keyspaces.multi.KeyspaceResult;
+import at.willhaben.springboot2keyspaces.multi.MultiKeyspaceQueries;
+import at.willhaben.springboot2keyspaces.multi.MultiKeyspaceWriter;
+import at.willhaben.springboot2keyspaces.statements.KeyspaceStatementCache;
+import at.willhaben.springboot2keyspaces.routing.KeyspaceContext;
+import at.willhaben.springboot2keyspaces.routing.KeyspaceRoutingRepository;
+import at.willhaben.springboot2keyspaces.routing.KeyspaceTemplateCache;
+import at.willhaben.springboot2keyspaces.cache.KeyspaceNearCaches;
+import at.willhaben.springboot2keyspaces.metrics.KeyspaceRepositoryMetrics;
+import at.willhaben.springboot2keyspaces.streaming.CopyCheckpoint;
+import at.willhaben.springboot2keyspaces.streaming.CopyProgress;
+import at.willhaben.springboot2keyspaces.streaming.KeyspaceCopier;
+import at.willhaben.springboot2keyspaces.streaming.KeyspaceVerifier;
+import at.willhaben.springboot2keyspaces.streaming.RowDifference;
+import at.willhaben.springboot2keyspaces.streaming.TokenRangeScanner;
+import at.willhaben.springboot2keyspaces.streaming.VerificationResult;
+import at.willhaben.springboot2keyspaces.support.CassandraTestContainer;
+import at.willhaben.springboot2keyspaces.support.KeyspaceReset;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.aot.generate.ClassNameGenerator;
+import org.springframework.aot.generate.DefaultGenerationContext;
+import org.springframework.aot.generate.InMemoryGeneratedFiles;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.testcontainers.containers.CassandraContainer;
-import org.testcontainers.junit.jupiter.Container;
-import org.testcontainers.junit.jupiter.Testcontainers;
+import org.springframework.data.cassandra.core.mapping.CassandraMappingContext;
+import org.springframework.data.cassandra.core.query.Criteria;
+import org.springframework.data.cassandra.core.query.Query;
+import org.springframework.data.mapping.model.EntityInstantiators;
+import org.springframework.javapoet.ClassName;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest
-@Testcontainers
 class RepositoriesIT {
 
-    @Container
-    public static final CassandraContainer cassandra
-            = (CassandraContainer) new CassandraContainer("cassandra:3.11.2").withExposedPorts(9042);
-
-    static {
-        cassandra.start();
-    }
-
     @Autowired
     private ARepository aRepository;
 
@@ -44,25 +83,65 @@ class RepositoriesIT {
     @Autowired
     private Keyspace2CRepository keyspace2CRepository;
 
+    @Autowired
+    private CRepository routingCRepository;
+
+    @Autowired
+    private Keyspace1ReactiveCRepository keyspace1ReactiveCRepository;
+    @Autowired
+    private Keyspace2ReactiveCRepository keyspace2ReactiveCRepository;
+
+    @Autowired
+    private MultiKeyspaceQueries multiKeyspaceQueries;
+
+    @Autowired
+    private MultiKeyspaceWriter multiKeyspaceWriter;
+
+    @Autowired
+    private TokenRangeScanner tokenRangeScanner;
+
+    @Autowired
+    private KeyspaceCopier keyspaceCopier;
+
+    @Autowired
+    private KeyspaceVerifier keyspaceVerifier;
+
+    @Autowired
+    @Qualifier("aSession")
+    private CqlSession aSession;
+
+    @Autowired
+    @Qualifier("bSession")
+    private CqlSession bSession;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private KeyspaceStatementCache statementCache;
+
+    @Autowired
+    private KeyspaceRepositories keyspaceRepositories;
+
+    @Autowired
+    private ConfigurableListableBeanFactory beanFactory;
+
+    @Autowired
+    private KeyspaceSessions keyspaceSessions;
+
+    @Autowired
+    @Qualifier("bAsyncExecutor")
+    private KeyspaceExecutor bAsyncExecutor;
+
     @BeforeAll
     static void setupCassandraConnectionProperties() {
-        System.setProperty("a.keyspace-name", "a_keyspace");
-        System.setProperty("b.keyspace-name", "b_keyspace");
-        System.setProperty("cassandra.username", cassandra.getUsername());
-        System.setProperty("cassandra.password", cassandra.getPassword());
-        System.setProperty("cassandra.schema-action", "CREATE_IF_NOT_EXISTS");
-        System.setProperty(
-                "cassandra.contact-points",
-                "%s:%s".formatted(cassandra.getHost(), cassandra.getMappedPort(9042)));
-        System.setProperty("cassandra.local-datacenter", cassandra.getLocalDatacenter());
+        CassandraTestContainer.setConnectionProperties();
+        CassandraTestContainer.setKeyspaceProperties();
     }
 
     @BeforeEach
     void setUp() {
-        aRepository.deleteAll();
-        bRepository.deleteAll();
-        keyspace1CRepository.deleteAll();
-        keyspace2CRepository.deleteAll();
+        KeyspaceReset.truncateAll(beanFactory);
     }
 
     @Test
@@ -212,4 +291,458 @@ class RepositoriesIT {
         assertThat(cFromKeyspace2)
                 .isEqualTo(c2);
     }
-}
\ No newline at end of file
+
+    @Test
+    void givenCValue_whenPersistingValueReactivelyInKeyspace1_thenValueCanOnlyBeReadInPersistedKeyspace() {
+        // Given
+        C c = new C(UUID.randomUUID(), "test", "test");
+        keyspace1ReactiveCRepository.insert(c).block();
+
+        // When
+        List<C> allCsInKeyspace1 = keyspace1ReactiveCRepository.findAll().collectList().block();
+        List<C> allCsInKeyspace2 = keyspace2ReactiveCRepository.findAll().collectList().block();
+
+        // Then
+        assertThat(allCsInKeyspace1)
+                .containsExactly(c);
+        assertThat(allCsInKeyspace2)
+                .isEmpty();
+        assertThat(keyspace1CRepository.findAll())
+                .containsExactly(c);
+    }
+
+    @Test
+    void given2ValuesWithSameId_whenPersistingValueReactivelyInBothKeyspaces_thenValueBeReadById() {
+        // Given
+        UUID commonId = UUID.randomUUID();
+        C c1 = new C(commonId, "test1", "test1");
+        C c2 = new C(commonId, "test1", "test2");
+        keyspace1ReactiveCRepository.insert(c1).block();
+        keyspace2ReactiveCRepository.insert(c2).block();
+
+        // When
+        C cFromKeyspace1 = keyspace1ReactiveCRepository.findByA(commonId).block();
+        C cFromKeyspace2 = keyspace2ReactiveCRepository.findByA(commonId).block();
+
+        // Then
+        assertThat(cFromKeyspace1)
+                .isEqualTo(c1);
+        assertThat(cFromKeyspace2)
+                .isEqualTo(c2);
+    }
+
+    @Test
+    void given2ValuesWithSameId_whenPersistingValueThroughRoutingRepository_thenValueIsReadFromContextKeyspace() {
+        // Given
+        UUID commonId = UUID.randomUUID();
+        C c1 = new C(commonId, "test1", "test1");
+        C c2 = new C(commonId, "test1", "test2");
+        KeyspaceContext.run("a_keyspace", () -> routingCRepository.insert(c1));
+        KeyspaceContext.run("b_keyspace", () -> routingCRepository.insert(c2));
+
+        // When
+        C cFromKeyspace1 = KeyspaceContext.call("a_keyspace", () -> routingCRepository.findByA(commonId));
+        C cFromKeyspace2 = KeyspaceContext.call("b_keyspace", () -> routingCRepository.findByA(commonId));
+
+        // Then
+        assertThat(cFromKeyspace1)
+                .isEqualTo(c1);
+        assertThat(cFromKeyspace2)
+                .isEqualTo(c2);
+        assertThat(keyspace1CRepository.findAll())
+                .containsExactly(c1);
+        assertThat(keyspace2CRepository.findAll())
+                .containsExactly(c2);
+    }
+
+    @Test
+    void givenKeyspaceInUse_whenEvictedFromTemplateCache_thenCallsInUseComplete() {
+        // Given
+        KeyspaceProperties keyspaceProperties = new KeyspaceProperties();
+        keyspaceProperties.setMaxCachedKeyspaces(1);
+        KeyspaceTemplateCache keyspaceTemplateCache = new KeyspaceTemplateCache(keyspaceProperties, Map.of(), keyspaceSessions,
+                beanFactory.getBean("sharedMappingContext", CassandraMappingContext.class),
+                beanFactory.getBean("sharedEntityInstantiators", EntityInstantiators.class),
+                beanFactory.getBean(KeyspaceRepositoryMetrics.class), beanFactory.getBean(KeyspaceNearCaches.class));
+        CRepository routingRepository = KeyspaceRoutingRepository.create(CRepository.class, keyspaceTemplateCache);
+        C c1 = new C(UUID.randomUUID(), "test1", "test1");
+        C c2 = new C(UUID.randomUUID(), "test2", "test2");
+        keyspace1CRepository.insert(c1);
+        keyspace2CRepository.insert(c2);
+
+        try {
+            KeyspaceTemplateCache.Lease lease = keyspaceTemplateCache.acquire("a_keyspace");
+            Stream<C> stream = KeyspaceContext.call("a_keyspace", routingRepository::streamAll);
+
+            // When
+            C cFromKeyspace2 = KeyspaceContext.call("b_keyspace", () -> routingRepository.findByA(c2.a()));
+
+            // Then
+            assertThat(cFromKeyspace2)
+                    .isEqualTo(c2);
+            try (stream) {
+                assertThat(stream)
+                        .containsExactly(c1);
+            }
+            try (lease) {
+                assertThat(lease.getRepository(CRepository.class).findAll())
+                        .containsExactly(c1);
+            }
+        } finally {
+            keyspaceTemplateCache.destroy();
+        }
+    }
+
+    @Test
+    void given2ValuesWithSameId_whenQueryingAllKeyspaces_thenValuesAreTaggedByKeyspace() {
+        // Given
+        UUID commonId = UUID.randomUUID();
+        C c1 = new C(commonId, "test1", "test1");
+        C c2 = new C(commonId, "test1", "test2");
+        keyspace1CRepository.insert(c1);
+        keyspace2CRepository.insert(c2);
+
+        // When
+        List<KeyspaceResult<C>> results = multiKeyspaceQueries.selectOne(Query.query(Criteria.where("a").is(commonId)), C.class);
+
+        // Then
+        assertThat(results)
+                .containsExactly(KeyspaceResult.success("a_keyspace", c1), KeyspaceResult.success("b_keyspace", c2));
+    }
+
+    @Test
+    void givenValueInsertedIntoA_whenQueryingAnUnknownKeyspace_thenOnlyItsResultFailed() {
+        // Given
+        C c = new C(UUID.randomUUID(), "test", "test");
+        keyspace1CRepository.insert(c);
+
+        // When
+        List<KeyspaceResult<C>> results = multiKeyspaceQueries.selectOne(Query.query(Criteria.where("a").is(c.a())), C.class,
+                "a_keyspace", "unknown_keyspace");
+
+        // Then
+        assertThat(results)
+                .hasSize(2)
+                .first()
+                .isEqualTo(KeyspaceResult.success("a_keyspace", c));
+        assertThat(results.get(1).error())
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void givenCValuesOfTwoPartitions_whenWritingIntoAllKeyspaces_thenValuesCanBeReadInBothKeyspaces() {
+        // Given
+        UUID commonId = UUID.randomUUID();
+        C c1 = new C(commonId, "test1", "test1");
+        C c2 = new C(commonId, "test2", "test2");
+        C c3 = new C(UUID.randomUUID(), "test3", "test3");
+
+        // When
+        List<KeyspaceResult<Void>> results = multiKeyspaceWriter.insert(List.of(c1, c2, c3));
+
+        // Then
+        assertThat(results)
+                .containsExactly(KeyspaceResult.success("a_keyspace", null), KeyspaceResult.success("b_keyspace", null));
+        assertThat(keyspace1CRepository.findAll())
+                .containsExactlyInAnyOrder(c1, c2, c3);
+        assertThat(keyspace2CRepository.findAll())
+                .containsExactlyInAnyOrder(c1, c2, c3);
+    }
+
+    @Test
+    void givenCValue_whenWritingIntoAnUnknownKeyspace_thenOnlyItsResultFailed() {
+        // Given
+        C c = new C(UUID.randomUUID(), "test", "test");
+
+        // When
+        List<KeyspaceResult<Void>> results = multiKeyspaceWriter.insert(List.of(c), "unknown_keyspace", "a_keyspace");
+
+        // Then
+        assertThat(results)
+                .hasSize(2)
+                .last()
+                .isEqualTo(KeyspaceResult.success("a_keyspace", null));
+        assertThat(results.get(0).error())
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(keyspace1CRepository.findAll())
+                .containsExactly(c);
+    }
+
+    @Test
+    void givenCValuesInKeyspace1_whenStreamingAll_thenValuesAreReadFromKeyspace1Only() {
+        // Given
+        List<C> cs = IntStream.range(0, 10).mapToObj(i -> new C(UUID.randomUUID(), "test" + i, "test" + i)).toList();
+        keyspace1CRepository.insert(cs);
+
+        // When
+        List<C> allCsInKeyspace1;
+        try (Stream<C> stream = keyspace1CRepository.streamAll()) {
+            allCsInKeyspace1 = stream.toList();
+        }
+        long csInKeyspace2;
+        try (Stream<C> stream = keyspace2CRepository.streamAll()) {
+            csInKeyspace2 = stream.count();
+        }
+
+        // Then
+        assertThat(allCsInKeyspace1)
+                .containsExactlyInAnyOrderElementsOf(cs);
+        assertThat(csInKeyspace2)
+                .isZero();
+    }
+
+    @Test
+    void givenCValuesInBothKeyspaces_whenDeletingAllInKeyspace1_thenOnlyKeyspace1IsEmpty() {
+        // Given
+        C c1 = new C(UUID.randomUUID(), "test1", "test1");
+        C c2 = new C(UUID.randomUUID(), "test2", "test2");
+        keyspace1CRepository.insert(c1);
+        keyspace2CRepository.insert(c2);
+
+        // When
+        keyspace1CRepository.deleteAll();
+
+        // Then
+        assertThat(keyspace1CRepository.findAll())
+                .isEmpty();
+        assertThat(keyspace2CRepository.findAll())
+                .containsExactly(c2);
+    }
+
+    @Test
+    void givenCValuesInKeyspace2_whenScanningTokenRanges_thenEveryValueIsReadOnce() {
+        // Given
+        List<C> cs = IntStream.range(0, 100).mapToObj(i -> new C(UUID.randomUUID(), "test" + i, "test" + i)).toList();
+        keyspace2CRepository.insert(cs);
+        Queue<C> scanned = new ConcurrentLinkedQueue<>();
+
+        // When
+        long rows = tokenRangeScanner.scan("b_keyspace", C.class, 4, scanned::add);
+
+        // Then
+        assertThat(rows)
+                .isEqualTo(100);
+        assertThat(scanned)
+                .containsExactlyInAnyOrderElementsOf(cs);
+    }
+
+    @Test
+    void givenCValuesInKeyspace1_whenCopyingToKeyspace2Twice_thenValuesAreCopiedAndTheResumedCopySkipsAllRanges() {
+        // Given
+        List<C> cs = IntStream.range(0, 100).mapToObj(i -> new C(UUID.randomUUID(), "test" + i, "test" + i)).toList();
+        keyspace1CRepository.insert(cs);
+        CopyCheckpoint checkpoint = CopyCheckpoint.inMemory();
+        Queue<CopyProgress> reported = new ConcurrentLinkedQueue<>();
+
+        // When
+        CopyProgress copied = keyspaceCopier.copy(C.class, "a_keyspace", "b_keyspace", 4, 16, checkpoint, reported::add);
+        CopyProgress resumed = keyspaceCopier.copy(C.class, "a_keyspace", "b_keyspace", 4, 16, checkpoint, reported::add);
+
+        // Then
+        assertThat(keyspace2CRepository.findAll())
+                .containsExactlyInAnyOrderElementsOf(cs);
+        assertThat(copied.rows())
+                .isEqualTo(100);
+        assertThat(copied.isDone())
+                .isTrue();
+        assertThat(reported)
+                .hasSize(copied.ranges());
+        assertThat(resumed.skippedRanges())
+                .isEqualTo(copied.ranges());
+        assertThat(resumed.rows())
+                .isZero();
+    }
+
+    @Test
+    void givenCValuesDivergingInKeyspace2_whenVerifying_thenOnlyDivergingRowsAreReported() {
+        // Given
+        List<C> cs = IntStream.range(0, 100).mapToObj(i -> new C(UUID.randomUUID(), "test" + i, "test" + i)).toList();
+        keyspace1CRepository.insert(cs);
+        keyspace2CRepository.insert(cs);
+        C changed = new C(cs.get(0).a(), cs.get(0).b(), "changed");
+        C added = new C(UUID.randomUUID(), "added", "added");
+        keyspace2CRepository.insert(changed);
+        keyspace2CRepository.delete(cs.get(1));
+        keyspace2CRepository.insert(added);
+
+        // When
+        VerificationResult<C> result = keyspaceVerifier.verify(C.class, "a_keyspace", "b_keyspace", 4, 16);
+
+        // Then
+        assertThat(result.differences())
+                .containsExactlyInAnyOrder(
+                        new RowDifference<>(cs.get(0), changed),
+                        new RowDifference<>(cs.get(1), null),
+                        new RowDifference<>(null, added));
+        assertThat(result.mismatchingLeaves())
+                .isBetween(1, 3);
+        assertThat(keyspaceVerifier.verify(C.class, "a_keyspace", "a_keyspace").isConsistent())
+                .isTrue();
+    }
+
+    @Test
+    void givenSchemasCreatedConcurrentlyAtStartup_whenReadingMetadata_thenSessionsOnlyKnowTheKeyspacesTheyServe() {
+        // When
+        Map<CqlIdentifier, KeyspaceMetadata> aKeyspaces = aSession.getMetadata().getKeyspaces();
+        Map<CqlIdentifier, KeyspaceMetadata> bKeyspaces = bSession.getMetadata().getKeyspaces();
+
+        // Then
+        CqlIdentifier aKeyspace = CqlIdentifier.fromCql("a_keyspace");
+        CqlIdentifier bKeyspace = CqlIdentifier.fromCql("b_keyspace");
+        assertThat(aKeyspaces.keySet())
+                .containsOnly(aKeyspace);
+        assertThat(aKeyspaces.get(aKeyspace).getTable("c"))
+                .isPresent();
+        assertThat(bKeyspaces.keySet())
+                .containsOnly(bKeyspace);
+        assertThat(bKeyspaces.get(bKeyspace).getTable("c"))
+                .isPresent();
+    }
+
+    @Test
+    void givenSchemaAction_whenSessionsAreOpened_thenTheyDoNotAwaitSchemaAgreementPerStatement() {
+        // When
+        DriverExecutionProfile aProfile = aSession.getContext().getConfig().getDefaultProfile();
+        DriverExecutionProfile bProfile = bSession.getContext().getConfig().getDefaultProfile();
+
+        // Then
+        assertThat(aProfile.getDuration(DefaultDriverOption.CONTROL_CONNECTION_AGREEMENT_TIMEOUT))
+                .isZero();
+        assertThat(bProfile.getDuration(DefaultDriverOption.CONTROL_CONNECTION_AGREEMENT_TIMEOUT))
+                .isZero();
+    }
+
+    @Test
+    void givenValuesInA_whenReadAll_thenInvocationAndRowsAreRecordedForKeyspace1() {
+        // Given
+        aRepository.insert(List.of(new A(UUID.randomUUID(), "test1", "test1"), new A(UUID.randomUUID(), "test2", "test2")));
+        Timer findAll = meterRegistry.timer("cassandra.keyspace.repository.invocations",
+                "keyspace", "a_keyspace", "repository", "ARepository", "method", "findAll", "outcome", "success");
+        long invocations = findAll.count();
+        double rows = meterRegistry.counter("cassandra.keyspace.repository.rows",
+                "keyspace", "a_keyspace", "repository", "ARepository", "method", "findAll", "operation", "read").count();
+
+        // When
+        aRepository.findAll();
+
+        // Then
+        assertThat(findAll.count())
+                .isEqualTo(invocations + 1);
+        assertThat(meterRegistry.counter("cassandra.keyspace.repository.rows",
+                "keyspace", "a_keyspace", "repository", "ARepository", "method", "findAll", "operation", "read").count())
+                .isEqualTo(rows + 2);
+        assertThat(meterRegistry.find("cassandra.session.cql-requests").timers())
+                .isNotEmpty();
+    }
+
+    @Test
+    void givenValuesInKeyspace1_whenStreamingAll_thenInvocationAndRowsAreRecordedOnClose() {
+        // Given
+        keyspace1CRepository.insert(List.of(new C(UUID.randomUUID(), "test1", "test1"), new C(UUID.randomUUID(), "test2", "test2")));
+        Timer streamAll = meterRegistry.timer("cassandra.keyspace.repository.invocations",
+                "keyspace", "a_keyspace", "repository", "Keyspace1CRepository", "method", "streamAll", "outcome", "success");
+        long invocations = streamAll.count();
+        double rows = meterRegistry.counter("cassandra.keyspace.repository.rows",
+                "keyspace", "a_keyspace", "repository", "Keyspace1CRepository", "method", "streamAll", "operation", "read").count();
+
+        // When
+        try (Stream<C> stream = keyspace1CRepository.streamAll()) {
+            assertThat(stream)
+                    .hasSize(2);
+            assertThat(streamAll.count())
+                    .isEqualTo(invocations);
+        }
+
+        // Then
+        assertThat(streamAll.count())
+                .isEqualTo(invocations + 1);
+        assertThat(meterRegistry.counter("cassandra.keyspace.repository.rows",
+                "keyspace", "a_keyspace", "repository", "Keyspace1CRepository", "method", "streamAll", "operation", "read").count())
+                .isEqualTo(rows + 2);
+    }
+
+    @Test
+    void givenStatementsWarmedUpAtStartup_whenPreparingStatementInKeyspace1_thenItIsSharedWithOtherKeyspaces() {
+        // Given
+        String query = "SELECT c FROM C WHERE a = ? AND b = ?";
+
+        // When
+        aSession.prepare(query);
+
+        // Then
+        assertThat(statementCache.getStatements())
+                .extracting(SimpleStatement::getQuery)
+                .contains(query)
+                .anySatisfy(warmedUp -> assertThat(warmedUp).containsIgnoringCase("FROM c WHERE a"));
+        assertThat(bSession.prepare(query).getResultSetDefinitions().get(0).getName().asInternal())
+                .isEqualTo("c");
+    }
+
+    @Test
+    void givenKeyspaceRepositories_whenProcessingAheadOfTime_thenRepositoryProxiesAndEntitiesAreHinted() {
+        // Given
+        DefaultGenerationContext generationContext = new DefaultGenerationContext(
+                new ClassNameGenerator(ClassName.get(Application.class)), new InMemoryGeneratedFiles());
+
+        // When
+        new KeyspaceRepositoriesAotProcessor().processAheadOfTime(beanFactory).applyTo(generationContext, null);
+
+        // Then
+        RuntimeHints hints = generationContext.getRuntimeHints();
+        assertThat(RuntimeHintsPredicates.proxies().forInterfaces(CRepository.class))
+                .accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(B.class))
+                .accepts(hints);
+        assertThat(keyspaceRepositories.getKeyspaceName("bRepository"))
+                .contains("b_keyspace");
+    }
+
+    @Test
+    void givenLazySession_whenUsedConcurrentlyAndClosedWhenIdle_thenItIsOpenedOncePerUse() {
+        // Given
+        AtomicInteger opened = new AtomicInteger();
+        LazyKeyspaceSession session = new LazyKeyspaceSession(CqlIdentifier.fromCql("a_keyspace"), () -> {
+            opened.incrementAndGet();
+            return keyspaceSessions.openSession("a_keyspace");
+        }, keyspaceSessions::closeSession);
+        SimpleStatement query = SimpleStatement.newInstance("SELECT * FROM a");
+
+        // When
+        assertThat(session.isOpen())
+                .isFalse();
+        IntStream.range(0, 8).parallel().forEach(i -> session.execute(query));
+        boolean closed = session.closeIfIdle(Duration.ZERO);
+        session.execute(query);
+        session.close();
+
+        // Then
+        assertThat(closed)
+                .isTrue();
+        assertThat(opened.get())
+                .isEqualTo(2);
+        assertThat(session.isOpen())
+                .isFalse();
+    }
+
+    @Test
+    void given2ValuesWithSameId_whenReadingThroughAsyncExecutorOfKeyspace2_thenRoutingRepositoryReadsFromKeyspace2() {
+        // Given
+        UUID commonId = UUID.randomUUID();
+        C c1 = new C(commonId, "test1", "test1");
+        C c2 = new C(commonId, "test1", "test2");
+        keyspace1CRepository.insert(c1);
+        keyspace2CRepository.insert(c2);
+
+        // When
+        List<C> read = IntStream.range(0, 100)
+                .mapToObj(i -> bAsyncExecutor.supplyAsync(() -> routingCRepository.findByA(commonId)))
+                .toList().stream()
+                .map(CompletableFuture::join)
+                .toList();
+
+        // Then
+        assertThat(read)
+                .hasSize(100)
+                .containsOnly(c2);
+    }
+}
@@ -0,0 +1,11 @@
+package at.willhaben.springboot2keyspaces;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Runs the driver settings tests of {@link KeyspaceDriverSettingsIT} with a single session shared by all keyspaces, where
+ * keyspaces with own settings use an execution profile.
+ */
+@TestPropertySource(properties = "cassandra.session-mode=SHARED")
+class SharedSessionKeyspaceDriverSettingsIT extends KeyspaceDriverSettingsIT {
+}
@@ -0,0 +1,51 @@
+package at.willhaben.springboot2keyspaces;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.metadata.schema.KeyspaceMetadata;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the isolation tests of {@link RepositoriesIT} with a single session shared by all keyspaces.
+ */
+@TestPropertySource(properties = "cassandra.session-mode=SHARED")
+class SharedSessionRepositoriesIT extends RepositoriesIT {
+
+    @Autowired
+    @Qualifier("aSession")
+    private CqlSession aSession;
+
+    @Autowired
+    @Qualifier("bSession")
+    private CqlSession bSession;
+
+    /**
+     * The shared session serves, and therefore knows, all configured keyspaces.
+     */
+    @Test
+    @Override
+    void givenSchemasCreatedConcurrentlyAtStartup_whenReadingMetadata_thenSessionsOnlyKnowTheKeyspacesTheyServe() {
+        // When
+        Map<CqlIdentifier, KeyspaceMetadata> aKeyspaces = aSession.getMetadata().getKeyspaces();
+        Map<CqlIdentifier, KeyspaceMetadata> bKeyspaces = bSession.getMetadata().getKeyspaces();
+
+        // Then
+        CqlIdentifier aKeyspace = CqlIdentifier.fromCql("a_keyspace");
+        CqlIdentifier bKeyspace = CqlIdentifier.fromCql("b_keyspace");
+        assertThat(aKeyspaces.keySet())
+                .containsOnly(aKeyspace, bKeyspace);
+        assertThat(bKeyspaces.keySet())
+                .containsOnly(aKeyspace, bKeyspace);
+        assertThat(aKeyspaces.get(aKeyspace).getTable("c"))
+                .isPresent();
+        assertThat(bKeyspaces.get(bKeyspace).getTable("c"))
+                .isPresent();
+    }
+}
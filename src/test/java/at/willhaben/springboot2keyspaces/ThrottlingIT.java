@@ -0,0 +1,75 @@
+package at.willhaben.springboot2keyspaces;
+
+import at.willhaben.springboot2keyspaces.keyspace1.ARepository;
+import at.willhaben.springboot2keyspaces.keyspace2.BRepository;
+import at.willhaben.springboot2keyspaces.support.CassandraTestContainer;
+import at.willhaben.springboot2keyspaces.support.KeyspaceReset;
+import at.willhaben.springboot2keyspaces.throttling.KeyspaceThrottle;
+import com.datastax.oss.driver.api.core.RequestThrottlingException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+        "cassandra.keyspaces.b.throttling.max-in-flight=4",
+        "cassandra.keyspaces.b.throttling.max-queue-size=0"
+})
+class ThrottlingIT {
+
+    @Autowired
+    private ARepository aRepository;
+
+    @Autowired
+    private BRepository bRepository;
+
+    @Autowired
+    @Qualifier("bThrottle")
+    private KeyspaceThrottle bThrottle;
+
+    @Autowired
+    private ConfigurableListableBeanFactory beanFactory;
+
+    @BeforeAll
+    static void setupCassandraConnectionProperties() {
+        CassandraTestContainer.setConnectionProperties();
+        CassandraTestContainer.setKeyspaceProperties();
+    }
+
+    @BeforeEach
+    void setUp() {
+        KeyspaceReset.truncateAll(beanFactory);
+    }
+
+    @Test
+    void givenAllSlotsOfKeyspace2InUse_whenReading_thenOnlyKeyspace2RejectsTheRequest() {
+        // Given
+        long rejected = bThrottle.getRejected();
+        IntStream.range(0, 4).forEach(i -> bThrottle.acquire());
+
+        // When
+        try {
+            // Then
+            assertThatThrownBy(() -> bRepository.findAll())
+                    .isInstanceOf(DataAccessException.class)
+                    .hasRootCauseInstanceOf(RequestThrottlingException.class);
+            assertThat(aRepository.findAll())
+                    .isEmpty();
+            assertThat(bThrottle.getRejected())
+                    .isEqualTo(rejected + 1);
+        } finally {
+            IntStream.range(0, 4).forEach(i -> bThrottle.release());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package at.willhaben.springboot2keyspaces.support;
+
+import org.testcontainers.containers.CassandraContainer;
+
+/**
+ * Cassandra node shared by all integration test classes of a test run. It is started on first use and stopped by
+ * Testcontainers when the JVM exits, so test classes with their own application context, e.g. another session mode,
+ * reuse it instead of starting a node each.
+ */
+public final class CassandraTestContainer {
+
+    private static final CassandraContainer<?> CASSANDRA = new CassandraContainer<>("cassandra:4.1.3").withExposedPorts(9042);
+
+    static {
+        CASSANDRA.start();
+    }
+
+    private CassandraTestContainer() {
+    }
+
+    /**
+     * Points {@code cassandra.*} at the shared node, to be called before the application context is created.
+     */
+    public static void setConnectionProperties() {
+        System.setProperty("cassandra.username", CASSANDRA.getUsername());
+        System.setProperty("cassandra.password", CASSANDRA.getPassword());
+        System.setProperty("cassandra.contact-points", "%s:%s".formatted(CASSANDRA.getHost(), CASSANDRA.getMappedPort(9042)));
+        System.setProperty("cassandra.local-datacenter", CASSANDRA.getLocalDatacenter());
+    }
+
+    /**
+     * Names the keyspaces of the test application, which the schema action creates with their tables. Opt-in features
+     * are enabled by the test classes covering them, so the other classes run with the defaults.
+     */
+    public static void setKeyspaceProperties() {
+        System.setProperty("a.keyspace-name", "a_keyspace");
+        System.setProperty("b.keyspace-name", "b_keyspace");
+        System.setProperty("cassandra.schema-action", "CREATE_IF_NOT_EXISTS");
+    }
+}
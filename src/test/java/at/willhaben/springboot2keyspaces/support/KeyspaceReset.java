@@ -0,0 +1,67 @@
+package at.willhaben.springboot2keyspaces.support;
+
+import at.willhaben.springboot2keyspaces.KeyspaceProperties;
+import at.willhaben.springboot2keyspaces.KeyspaceRegistrar;
+import at.willhaben.springboot2keyspaces.KeyspaceSessions;
+import at.willhaben.springboot2keyspaces.cache.KeyspaceNearCache;
+import at.willhaben.springboot2keyspaces.cache.KeyspaceNearCaches;
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.querybuilder.QueryBuilder;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.data.cassandra.core.mapping.CassandraMappingContext;
+import org.springframework.data.cassandra.core.mapping.CassandraPersistentEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import static at.willhaben.springboot2keyspaces.KeyspaceRegistrar.beanName;
+
+/**
+ * Empties every configured keyspace between tests. A truncation makes every node flush and snapshot the table, while
+ * a test usually writes into a few tables only, so each table is probed for a row first and only tables with rows are
+ * truncated. All tables of all keyspaces are probed and truncated concurrently, the near caches are cleared afterwards.
+ */
+public final class KeyspaceReset {
+
+    private KeyspaceReset() {
+    }
+
+    public static void truncateAll(BeanFactory beanFactory) {
+        KeyspaceProperties keyspaceProperties = beanFactory.getBean(KeyspaceProperties.class);
+        KeyspaceSessions keyspaceSessions = beanFactory.getBean(KeyspaceSessions.class);
+        List<CompletableFuture<AsyncResultSet>> truncations = new ArrayList<>();
+        keyspaceProperties.getKeyspaces().forEach((prefix, keyspace) -> {
+            CqlSession session = keyspaceSessions.getSession(prefix);
+            CqlIdentifier keyspaceName = CqlIdentifier.fromCql(keyspace.getKeyspaceName());
+            session.getMetadata().getKeyspace(keyspaceName).ifPresent(metadata -> metadata.getTables().keySet()
+                    .forEach(table -> truncations.add(truncateIfNotEmpty(session, keyspaceName, table).toCompletableFuture())));
+        });
+        CompletableFuture.allOf(truncations.toArray(CompletableFuture[]::new)).join();
+
+        KeyspaceNearCaches nearCaches = beanFactory.getBean(KeyspaceNearCaches.class);
+        CassandraMappingContext sharedMappingContext = beanFactory.getBean(
+                beanName(KeyspaceSessions.SHARED_PREFIX, KeyspaceRegistrar.MAPPING_CONTEXT), CassandraMappingContext.class);
+        keyspaceProperties.getKeyspaces().forEach((prefix, keyspace) -> nearCaches.getNearCache(keyspace.getKeyspaceName())
+                .ifPresent(nearCache -> {
+                    invalidateAll(nearCache, sharedMappingContext);
+                    invalidateAll(nearCache, beanFactory.getBean(beanName(prefix, KeyspaceRegistrar.MAPPING_CONTEXT), CassandraMappingContext.class));
+                }));
+    }
+
+    private static CompletionStage<AsyncResultSet> truncateIfNotEmpty(CqlSession session, CqlIdentifier keyspaceName, CqlIdentifier table) {
+        return session.executeAsync(QueryBuilder.selectFrom(keyspaceName, table).all().limit(1).build())
+                .thenCompose(rows -> rows.remaining() > 0
+                        ? session.executeAsync(QueryBuilder.truncate(keyspaceName, table).build())
+                        : CompletableFuture.completedFuture(rows));
+    }
+
+    private static void invalidateAll(KeyspaceNearCache nearCache, CassandraMappingContext mappingContext) {
+        for (CassandraPersistentEntity<?> entity : mappingContext.getPersistentEntities()) {
+            nearCache.invalidateAll(entity.getType());
+        }
+    }
+}